@@ -0,0 +1,26 @@
+package com.kaba.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of target/benchmarks.jar: runs the JMH benchmarks with the GC profiler so that the allocation rate
+ * (gc.alloc.rate.norm: bytes per operation) is reported next to the throughput of every benchmark
+ * Usual JMH command line options apply, e.g. java -jar target/benchmarks.jar PipelineBenchmark.subsetConstruction -p size=64
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include("com\\.kaba\\.benchmarks\\..*");
+        }
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
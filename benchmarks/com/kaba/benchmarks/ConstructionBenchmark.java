@@ -0,0 +1,59 @@
+package com.kaba.benchmarks;
+
+import com.kaba.algorithms.NFAConstruction;
+import com.kaba.algorithms.SubsetConstruction;
+import com.kaba.automata.DFA;
+import com.kaba.helper.CompilationContext;
+import com.kaba.helper.Fragment;
+import com.kaba.helper.Regex;
+import com.kaba.helper.RegexToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thompson (with ε transitions, closed over by the subset construction) against Glushkov (ε-free position automaton)
+ * over the regex families of RegexFamilies: the time to build the NFA and the time of the subset construction of it
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+    @Param({"concat", "alternation", "nested", "suffix"})
+    public String family;
+
+    @Param({"8", "64", "512"})
+    public int size;
+
+    @Param({"thompson", "glushkov"})
+    public String construction;
+
+    private NFAConstruction nfaConstruction;
+    private Queue<RegexToken> postfix;
+    private Fragment NFA;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        nfaConstruction = "glushkov".equals(construction) ? NFAConstruction.GLUSHKOV : NFAConstruction.THOMPSON;
+        postfix = Regex.simplify(Regex.infixToPostfix(RegexFamilies.regex(family, size)));
+        NFA = postfixToNFA();
+    }
+
+    /**
+     * Thompson consumes its queue, so each invocation works on a copy of the postfix expression
+     */
+    @Benchmark
+    public Fragment postfixToNFA() {
+        return nfaConstruction.postfixToNFA(new LinkedList<>(postfix), new CompilationContext());
+    }
+
+    @Benchmark
+    public DFA subsetConstruction() {
+        return SubsetConstruction.subsetConstruction(NFA);
+    }
+}
@@ -0,0 +1,62 @@
+package com.kaba.benchmarks;
+
+import com.kaba.algorithms.DFAConstruction;
+import com.kaba.algorithms.NFAConstruction;
+import com.kaba.automata.DFA;
+import com.kaba.helper.CompilationContext;
+import com.kaba.helper.Regex;
+import com.kaba.helper.RegexToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DFA construction engines over the regex families of RegexFamilies, from the simplified postfix expression to the
+ * DFA: Thompson + subset construction, Glushkov + subset construction and Brzozowski derivatives
+ * Sizes stop at 64: the derivatives of the nested family cost O(size^3) each (see Brzozowski.derivative)
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    @Param({"concat", "alternation", "nested", "suffix"})
+    public String family;
+
+    @Param({"8", "64"})
+    public int size;
+
+    @Param({"subset", "glushkov", "brzozowski"})
+    public String engine;
+
+    private DFAConstruction construction;
+    private Queue<RegexToken> postfix;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (engine) {
+            case "glushkov":
+                construction = DFAConstruction.subset(NFAConstruction.GLUSHKOV);
+                break;
+            case "brzozowski":
+                construction = DFAConstruction.BRZOZOWSKI;
+                break;
+            default:
+                construction = DFAConstruction.SUBSET;
+                break;
+        }
+        postfix = Regex.simplify(Regex.infixToPostfix(RegexFamilies.regex(family, size)));
+    }
+
+    /**
+     * Thompson consumes its queue, so each invocation works on a copy of the postfix expression
+     */
+    @Benchmark
+    public DFA postfixToDFA() {
+        return construction.postfixToDFA(new LinkedList<>(postfix), new CompilationContext());
+    }
+}
@@ -0,0 +1,71 @@
+package com.kaba.benchmarks;
+
+import com.kaba.algorithms.SubsetConstruction;
+import com.kaba.algorithms.Thompson;
+import com.kaba.automata.DFA;
+import com.kaba.helper.Fragment;
+import com.kaba.helper.Regex;
+import com.kaba.helper.RegexToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each step of the regex => NFA => DFA pipeline over the regex families of RegexFamilies
+ * Run with the GC profiler (see BenchmarkRunner) to also report the allocation rate of each step
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    @Param({"concat", "alternation", "nested", "suffix"})
+    public String family;
+
+    @Param({"8", "64", "512"})
+    public int size;
+
+    private String regex;
+    private Queue<RegexToken> postfix;
+    private Fragment NFA;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        regex = RegexFamilies.regex(family, size);
+        postfix = Regex.infixToPostfix(regex);
+        NFA = Thompson.postfixToNFA(new LinkedList<>(postfix));
+    }
+
+    @Benchmark
+    public Queue<RegexToken> infixToPostfix() {
+        return Regex.infixToPostfix(regex);
+    }
+
+    @Benchmark
+    public Queue<RegexToken> simplify() {
+        return Regex.simplify(postfix);
+    }
+
+    /**
+     * postfixToNFA consumes its queue, so each invocation works on a copy of the postfix expression
+     */
+    @Benchmark
+    public Fragment postfixToNFA() {
+        return Thompson.postfixToNFA(new LinkedList<>(postfix));
+    }
+
+    @Benchmark
+    public List<com.kaba.helper.State> eClosure() {
+        return NFA.getStartState().getEClosure();
+    }
+
+    @Benchmark
+    public DFA subsetConstruction() {
+        return SubsetConstruction.subsetConstruction(NFA);
+    }
+}
@@ -0,0 +1,73 @@
+package com.kaba.benchmarks;
+
+/**
+ * Generators of regular expressions and expression statements of increasing size used by the benchmarks
+ */
+final class RegexFamilies {
+    private static final String SYMBOLS = "abcde";
+
+    private RegexFamilies() {
+    }
+
+    /**
+     * Return the regex of family with the given size
+     *  concat:      abcdeabcde... (size symbols)
+     *  alternation: (ab|bc|cd|...)* (size alternatives)
+     *  nested:      ((((a)*b)*c)*...) (size levels of nesting)
+     *  suffix:      (a|b)*a(a|b)(a|b)... whose DFA grows exponentially: log2(size) + 2 trailing (a|b) so that the
+     *               DFA stays in the thousands of states
+     */
+    static String regex(String family, int size) {
+        StringBuilder regex = new StringBuilder();
+        switch (family) {
+            case "concat":
+                for (int i = 0; i < size; i++) {
+                    regex.append(symbol(i));
+                }
+                return regex.toString();
+            case "alternation":
+                regex.append('(');
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) {
+                        regex.append('|');
+                    }
+                    regex.append(symbol(i)).append(symbol(i + 1));
+                }
+                return regex.append(")*").toString();
+            case "nested":
+                for (int i = 0; i < size; i++) {
+                    regex.append('(');
+                }
+                regex.append(symbol(0));
+                for (int i = 1; i <= size; i++) {
+                    regex.append(")*").append(symbol(i));
+                }
+                return regex.toString();
+            case "suffix":
+                regex.append("(a|b)*a");
+                int length = 32 - Integer.numberOfLeadingZeros(size) + 1;
+                for (int i = 0; i < length; i++) {
+                    regex.append("(a|b)");
+                }
+                return regex.toString();
+            default:
+                throw new IllegalArgumentException("Unknown regex family: " + family);
+        }
+    }
+
+    /**
+     * Return size statements of the form xi = ai + bi * ci - di / (ei + fi);
+     */
+    static String statements(int size) {
+        StringBuilder statements = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            statements.append("x").append(i).append(" = a").append(i).append(" + b").append(i).append(" * c").append(i)
+                    .append(" - d").append(i).append(" / (e").append(i).append(" + f").append(i).append(");");
+        }
+        return statements.toString();
+    }
+
+    private static char symbol(int i) {
+        return SYMBOLS.charAt(i % SYMBOLS.length());
+    }
+}
@@ -0,0 +1,34 @@
+package com.kaba.benchmarks;
+
+import com.kaba.algorithms.ThreeAddressCode;
+import com.kaba.helper.BinaryTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of ThreeAddressCode.generateThreeAddressCode over batches of statements of increasing size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreeAddressCodeBenchmark {
+    @Param({"1", "64", "4096"})
+    public int statements;
+
+    private String input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = RegexFamilies.statements(statements);
+    }
+
+    @Benchmark
+    public List<BinaryTree<String>> generateThreeAddressCode() {
+        return new ThreeAddressCode().generateThreeAddressCode(input);
+    }
+}
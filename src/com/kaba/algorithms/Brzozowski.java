@@ -0,0 +1,255 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.DFA;
+import com.kaba.helper.AlphabetClasses;
+import com.kaba.helper.CharClass;
+import com.kaba.helper.CompilationContext;
+import com.kaba.helper.DFAState;
+import com.kaba.helper.RegexNode;
+import com.kaba.helper.RegexToken;
+
+import java.util.*;
+
+/**
+ * Brzozowski's construction of a DFA from the derivatives of a regular expression, an alternative to
+ * Thompson + SubsetConstruction that needs no NFA
+ * Reference: Brzozowski, "Derivatives of Regular Expressions" (1964)
+ * The derivative of r by a is the expression of the strings w such that aw matches r: every DFA state is a derivative
+ * of the regex (the start state is the regex itself), its transition via a is its derivative by a, and it is final if
+ * it matches ε. Derivatives are built by the smart constructors of RegexNode, which keep them in a normal form (∅ and
+ * ε absorbed, alternations flattened, deduplicated and sorted, closures collapsed), so there are finitely many of them
+ * and equivalent derivatives often meet in one state: the DFA is frequently minimal or close to it without Hopcroft
+ * Like SubsetConstruction, derivatives are only taken by the representative of each alphabet class, and the DFA is
+ * complete: the derivative ∅ is its dead state
+ */
+public class Brzozowski {
+    /**
+     * Same as postfixToDFA(Queue<RegexToken> queue, CompilationContext context) in a new CompilationContext
+     */
+    public static DFA postfixToDFA(Queue<RegexToken> queue) throws EmptyStackException {
+        return postfixToDFA(queue, new CompilationContext());
+    }
+
+    /**
+     * Return the DFA of a postfix expression (see Regex.infixToPostfix), built in context: the ids of its states are
+     * handed out by context and the input alphabet and input symbols of the expression are recorded in context
+     * The queue is not consumed
+     * Throws EmptyStackException if queue is not a valid postfix expression
+     */
+    public static DFA postfixToDFA(Queue<RegexToken> queue, CompilationContext context) throws EmptyStackException {
+        return treeToDFA(RegexNode.fromPostfix(queue), context);
+    }
+
+    /**
+     * Input: expression tree r
+     * Output: DFA
+     * Initialize: Let r be the only state in DStates (of the DFA)
+     * Repeat: while there are unmarked states  T  in  DStates  do
+     *      mark T
+     *      for each alphabet class (see AlphabetClasses): a  do
+     *          U = derivative of T by a
+     *          if U is not in DStates then
+     *              add U as unmarked state in  DStates
+     *              if U matches ε then
+     *                  add U to the final states set of DFA
+     *          DTran[T, a] = U
+     *      end
+     * end
+     */
+    public static DFA treeToDFA(RegexNode root, CompilationContext context) {
+        recordSymbols(root, context);
+        AlphabetClasses classes = context.getAlphabetClasses();
+
+        Map<RegexNode, DFAState> dStates = new HashMap<>();
+        Queue<RegexNode> unmarked = new ArrayDeque<>();
+        DFAState start = new DFAState("S", key(0), root, context);
+        DFA generatedDFA = new DFA(start);
+        generatedDFA.setAlphabetClasses(classes);
+        if (root.isNullable()) {
+            generatedDFA.getFinalStates().add(start);
+        }
+        dStates.put(root, start);
+        unmarked.add(root);
+        while (!unmarked.isEmpty()) {
+            RegexNode T = unmarked.remove();
+            DFAState current = dStates.get(T);
+            for (int c = 0; c < classes.getClassCount(); c++) {
+                char input = classes.getRepresentative(c);
+                RegexNode U = derivative(T, input);
+                DFAState newState = dStates.get(U);
+                if (newState == null) {
+                    newState = new DFAState(null, key(dStates.size()), U, context);
+                    dStates.put(U, newState);
+                    generatedDFA.add(newState);
+                    unmarked.add(U);
+                    if (U.isNullable()) {
+                        generatedDFA.getFinalStates().add(newState);
+                    }
+                }
+                current.setTransition(input, newState.getId());
+            }
+        }
+        return generatedDFA;
+    }
+
+    /**
+     * Return the derivative of root by input
+     *  ∅, ε:               ∅
+     *  symbols S:          ε if input is in S, otherwise ∅
+     *  x1 | .. | xk:       D(x1) | .. | D(xk)
+     *  x1 x2 .. xk:        D(x1) x2 .. xk | D(x2) x3 .. xk | .. | D(xm) x(m+1) .. xk, where xm is the first xi that
+     *                      does not match ε (or xk)
+     *  x*:                 D(x) x*
+     *  x+:                 D(x) x*
+     *  x?:                 D(x)
+     * where D(x) y is distributed over the alternatives of D(x) (see prepend), so a derivative is a sum of sequences
+     * The tree is walked with an explicit stack of frames, and only the children the derivative depends on are visited
+     * A derivative under k nested closures may have O(k) sequences of length O(k), rebuilt at each level, so deeply
+     * nested closures such as (((a*b)*c)*d)* cost O(k^3) per derivative where the subset construction is linear
+     */
+    public static RegexNode derivative(RegexNode root, char input) {
+        List<Frame> frames = new ArrayList<>();
+        int top = 0;
+        RegexNode value = null;
+        RegexNode node = root;
+        while (true) {
+            if (value == null) {
+                switch (node.getKind()) {
+                    case RegexNode.SYMBOLS:
+                        value = node.getSymbols().contains(input) ? RegexNode.epsilon() : RegexNode.empty();
+                        break;
+                    case RegexNode.EMPTY:
+                    case RegexNode.EPSILON:
+                        value = RegexNode.empty();
+                        break;
+                    default:
+                        if (top == frames.size()) {
+                            frames.add(new Frame());
+                        }
+                        frames.get(top++).enter(node);
+                        node = node.getChild(0);
+                        continue;
+                }
+            } else {
+                Frame frame = frames.get(top - 1);
+                RegexNode parent = frame.node;
+                int child = frame.next;
+                switch (parent.getKind()) {
+                    case RegexNode.ALTERNATION:
+                        frame.parts.add(value);
+                        break;
+                    case RegexNode.CONCATENATION:
+                        List<RegexNode> rest = new ArrayList<>(parent.getChildCount() - child - 1);
+                        for (int i = child + 1; i < parent.getChildCount(); i++) {
+                            rest.add(parent.getChild(i));
+                        }
+                        prepend(value, rest, frame.parts);
+                        if (!parent.getChild(child).isNullable()) {
+                            frame.next = parent.getChildCount();
+                        }
+                        break;
+                    case RegexNode.STAR:
+                    case RegexNode.PLUS:
+                        frame.parts.clear();
+                        RegexNode star = parent.getKind() == RegexNode.STAR ? parent
+                                : RegexNode.star(parent.getChild(0));
+                        prepend(value, Collections.singletonList(star), frame.parts);
+                        value = frame.parts.isEmpty() ? RegexNode.empty() : RegexNode.alternate(frame.parts);
+                        break;
+                    default:
+                        break;
+                }
+                if (parent.getKind() == RegexNode.ALTERNATION || parent.getKind() == RegexNode.CONCATENATION) {
+                    if (++frame.next < parent.getChildCount()) {
+                        node = parent.getChild(frame.next);
+                        value = null;
+                        continue;
+                    }
+                    value = frame.parts.isEmpty() ? RegexNode.empty() : RegexNode.alternate(frame.parts);
+                }
+                frame.node = null;
+                top--;
+            }
+            if (top == 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Add the alternatives of head rest to parts, distributing rest over head when head is an alternation or x? (which
+     * is x | ε): (x | y)? rest = x rest | y rest | rest. The derivatives of a regex are then sums of sequences, like
+     * those of Brzozowski's paper, instead of the factored forms of RegexNode.alternate: a factored (x)? rest and the
+     * equal x rest | rest would be two states, and such pairs could multiply without end
+     */
+    private static void prepend(RegexNode head, List<RegexNode> rest, List<RegexNode> parts) {
+        RegexNode alternatives = head;
+        if (head.getKind() == RegexNode.OPTIONAL) {
+            alternatives = head.getChild(0);
+            parts.add(rest.isEmpty() ? RegexNode.epsilon() : RegexNode.concatenate(rest));
+        } else if (head.getKind() == RegexNode.EMPTY) {
+            return;
+        }
+        int count = alternatives.getKind() == RegexNode.ALTERNATION ? alternatives.getChildCount() : 1;
+        for (int i = 0; i < count; i++) {
+            List<RegexNode> sequence = new ArrayList<>(rest.size() + 1);
+            sequence.add(count == 1 ? alternatives : alternatives.getChild(i));
+            sequence.addAll(rest);
+            parts.add(RegexNode.concatenate(sequence));
+        }
+    }
+
+    /**
+     * A node whose derivative is being computed: the index of the child being derived and the alternatives found so
+     * far (for an alternation or a concatenation)
+     */
+    private static final class Frame {
+        private RegexNode node;
+        private int next;
+        private final List<RegexNode> parts = new ArrayList<>();
+
+        void enter(RegexNode node) {
+            this.node = node;
+            this.next = 0;
+            this.parts.clear();
+        }
+    }
+
+    /**
+     * Record the input symbols of the tree root and its input alphabet in context, like Thompson does
+     */
+    private static void recordSymbols(RegexNode root, CompilationContext context) {
+        BitSet inputAlphabet = new BitSet();
+        Deque<RegexNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            RegexNode node = stack.pop();
+            if (node.getKind() == RegexNode.SYMBOLS) {
+                CharClass symbols = node.getSymbols();
+                char[] ranges = symbols.getRanges();
+                for (int i = 0; i < ranges.length; i += 2) {
+                    inputAlphabet.set(ranges[i], ranges[i + 1] + 1);
+                }
+                context.addSymbols(symbols);
+            }
+            for (int i = 0; i < node.getChildCount(); i++) {
+                stack.push(node.getChild(i));
+            }
+        }
+        char[] alphabet = new char[inputAlphabet.cardinality()];
+        int i = 0;
+        for (int symbol = inputAlphabet.nextSetBit(0); symbol >= 0; symbol = inputAlphabet.nextSetBit(symbol + 1)) {
+            alphabet[i++] = (char) symbol;
+        }
+        context.setInputSymbol(alphabet);
+    }
+
+    /**
+     * Return the canonical key (see DFAState.getKey) of the derivative numbered number
+     */
+    private static BitSet key(int number) {
+        BitSet key = new BitSet(number + 1);
+        key.set(number);
+        return key;
+    }
+}
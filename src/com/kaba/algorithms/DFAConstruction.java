@@ -0,0 +1,32 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.DFA;
+import com.kaba.helper.CompilationContext;
+import com.kaba.helper.RegexToken;
+
+import java.util.*;
+
+/**
+ * Construction of a DFA from a postfix expression (see Regex.infixToPostfix), chosen per compilation (see
+ * RegexCompiler.compileDFA) so that the faster engine can be used for each family of patterns:
+ *  SUBSET:         Thompson.postfixToNFA then SubsetConstruction.subsetConstruction
+ *  BRZOZOWSKI:     Brzozowski.postfixToDFA, from the derivatives of the expression without any NFA
+ * subset(NFAConstruction) runs the subset construction on the NFA of another NFAConstruction, e.g. Glushkov
+ */
+public interface DFAConstruction {
+    DFAConstruction SUBSET = subset(NFAConstruction.THOMPSON);
+    DFAConstruction BRZOZOWSKI = Brzozowski::postfixToDFA;
+
+    /**
+     * Return the DFA of the postfix expression queue, built in context
+     * Throws EmptyStackException if queue is not a valid postfix expression
+     */
+    DFA postfixToDFA(Queue<RegexToken> queue, CompilationContext context) throws EmptyStackException;
+
+    /**
+     * Return the subset construction of the NFA built by construction
+     */
+    static DFAConstruction subset(NFAConstruction construction) {
+        return (queue, context) -> SubsetConstruction.subsetConstruction(construction.postfixToNFA(queue, context));
+    }
+}
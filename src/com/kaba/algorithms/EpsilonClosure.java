@@ -0,0 +1,98 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.CompiledNFA;
+import com.kaba.helper.AlphabetClasses;
+
+import java.util.*;
+
+/**
+ * ε-closure engine for an NFA (see com.kaba.automata.CompiledNFA)
+ * States are addressed by their dense integer ids (State.getId()) and sets of states are BitSets over those ids
+ * The ε-closure of each state is computed at most once, using an explicit worklist and a visited set so that shared
+ * states are not revisited and ε-cycles (e.g. from nested '*') terminate. The result is cached for every later lookup
+ * Used by the SubsetConstruction algorithm for both the closure and the move steps
+ */
+public class EpsilonClosure {
+    private final CompiledNFA NFA;
+    private final BitSet[] closures;
+
+    public EpsilonClosure(CompiledNFA NFA) {
+        this.NFA = NFA;
+        closures = new BitSet[NFA.getStateCount()];
+    }
+
+    /**
+     * Return the ε-closure of the state with id: the cached BitSet is returned so callers must not modify it
+     * Algorithm:
+     *  push id onto the worklist and mark it visited
+     *  while the worklist is not empty:
+     *      pop t
+     *      if the closure of t is already known: add it to the result and do not expand t
+     *      else for every state u reachable from t via ε that is not visited: mark u and push u
+     */
+    public BitSet closure(int id) {
+        if (closures[id] != null) {
+            return closures[id];
+        }
+        BitSet result = new BitSet(closures.length);
+        int[] workList = new int[8];
+        int top = 0;
+        workList[top++] = id;
+        result.set(id);
+        while (top > 0) {
+            int current = workList[--top];
+            if (current != id && closures[current] != null) {
+                result.or(closures[current]);
+                continue;
+            }
+            for (int i = NFA.epsilonStart(current); i < NFA.epsilonEnd(current); i++) {
+                int next = NFA.epsilonTarget(i);
+                if (!result.get(next)) {
+                    result.set(next);
+                    if (top == workList.length) {
+                        workList = Arrays.copyOf(workList, top * 2);
+                    }
+                    workList[top++] = next;
+                }
+            }
+        }
+        closures[id] = result;
+        return result;
+    }
+
+    /**
+     * Return the ε-closure of a set of states: the union of the closure of each state in set
+     */
+    public BitSet closure(BitSet set) {
+        BitSet result = new BitSet(closures.length);
+        for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+            if (!result.get(id)) {
+                result.or(closure(id));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the set of states that can be transitioned to from the set of states current via char input
+     */
+    public BitSet move(BitSet current, char input) {
+        int inputClass = NFA.classOf(input);
+        return inputClass == AlphabetClasses.NONE ? new BitSet(closures.length) : move(current, inputClass);
+    }
+
+    /**
+     * Return the set of states that can be transitioned to from the set of states current via any character of the
+     * alphabet class inputClass of the NFA (see CompiledNFA.getAlphabetClasses)
+     */
+    public BitSet move(BitSet current, int inputClass) {
+        BitSet result = new BitSet(closures.length);
+        for (int id = current.nextSetBit(0); id >= 0; id = current.nextSetBit(id + 1)) {
+            int end = NFA.transitionEnd(id);
+            for (int i = NFA.firstTransition(id, inputClass); i < end && NFA.transitionClass(i) == inputClass; i++) {
+                result.set(NFA.transitionTarget(i));
+            }
+        }
+        return result;
+    }
+}
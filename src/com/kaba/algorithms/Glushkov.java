@@ -0,0 +1,217 @@
+package com.kaba.algorithms;
+
+import com.kaba.helper.CharClass;
+import com.kaba.helper.CompilationContext;
+import com.kaba.helper.Fragment;
+import com.kaba.helper.RegexNode;
+import com.kaba.helper.RegexToken;
+
+import java.util.*;
+
+/**
+ * Glushkov (position automaton) construction of an ε-free NFA from a regular expression, an alternative to Thompson
+ * Every input symbol of the expression is a position, numbered 1 .. n from left to right, and the NFA has exactly n + 1
+ * states: a start state and one state per position. There is no ε transition at all, so the ε-closure of a set of
+ * states is the set itself and the subset construction (or a LazyDFA, or a NFASimulator) has no closure work to do
+ * The expression is read as a RegexNode tree (see Regex.simplify), so the positions are those of the simplified
+ * expression. Unlike a Thompson NFA, a position automaton may have several accepting states (see
+ * Fragment.getAcceptingStates), and the transitions into a position carry the whole class of its symbol, so there may
+ * be O(n^2) transitions where Thompson has O(n)
+ */
+public class Glushkov {
+    /**
+     * Same as postfixToNFA(Queue<RegexToken> queue, CompilationContext context) in a new CompilationContext
+     */
+    public static Fragment postfixToNFA(Queue<RegexToken> queue) throws EmptyStackException {
+        return postfixToNFA(queue, new CompilationContext());
+    }
+
+    /**
+     * Return the position automaton of a postfix expression (see Regex.infixToPostfix), built in context like
+     * Thompson.postfixToNFA: the ids of its states are handed out by context and the input alphabet and input symbols
+     * of the expression are recorded in context. The queue is not consumed
+     * Throws EmptyStackException if queue is not a valid postfix expression
+     */
+    public static Fragment postfixToNFA(Queue<RegexToken> queue, CompilationContext context) throws EmptyStackException {
+        return treeToNFA(RegexNode.fromPostfix(queue), context);
+    }
+
+    /**
+     * Return the position automaton of the expression tree root
+     * Algorithm: the tree is walked in post order with an explicit stack, and for every node:
+     *  symbol at position p:   First = Last = {p}
+     *  x1 x2 .. xk:            for every i < j such that x(i+1) .. x(j-1) all match ε: Follow(Last(xi)) += First(xj)
+     *                          First = First(x1) ∪ .. ∪ First(xm), where xm is the first xi that does not match ε
+     *                          Last = Last(xm') ∪ .. ∪ Last(xk), where xm' is the last xi that does not match ε
+     *  x1 | x2 | .. | xk:      First = ∪ First(xi), Last = ∪ Last(xi)
+     *  x*, x+:                 Follow(Last(x)) += First(x), First = First(x), Last = Last(x)
+     *  x?:                     First = First(x), Last = Last(x)
+     * Positions are numbered in the order the symbols are reached, so the First and Last sets of the children of a node
+     * are in ascending order and their union is their concatenation
+     * The start state transitions to First(root), position p to Follow(p), and the accepting states are Last(root) plus
+     * the start state if root matches ε
+     */
+    public static Fragment treeToNFA(RegexNode root, CompilationContext context) {
+        CharClass[] symbols = new CharClass[16];
+        int positionCount = 0;
+        int[][] follow = new int[16][];
+        int[] followSize = new int[16];
+
+        RegexNode[] nodes = new RegexNode[16];
+        int[] next = new int[16];
+        int top = 0;
+        int[][] firsts = new int[16][];
+        int[][] lasts = new int[16][];
+        int results = 0;
+        BitSet inputAlphabet = new BitSet();
+
+        nodes[top++] = root;
+        while (top > 0) {
+            RegexNode node = nodes[top - 1];
+            int child = next[top - 1]++;
+            if (child < node.getChildCount()) {
+                if (top == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * top);
+                    next = Arrays.copyOf(next, 2 * top);
+                }
+                nodes[top] = node.getChild(child);
+                next[top++] = 0;
+                continue;
+            }
+            top--;
+            int[] first;
+            int[] last;
+            int k = node.getChildCount();
+            int from = results - k;
+            switch (node.getKind()) {
+                case RegexNode.SYMBOLS:
+                    int position = ++positionCount;
+                    if (position == symbols.length) {
+                        symbols = Arrays.copyOf(symbols, 2 * position);
+                        follow = Arrays.copyOf(follow, 2 * position);
+                        followSize = Arrays.copyOf(followSize, 2 * position);
+                    }
+                    symbols[position] = node.getSymbols();
+                    char[] ranges = node.getSymbols().getRanges();
+                    for (int i = 0; i < ranges.length; i += 2) {
+                        inputAlphabet.set(ranges[i], ranges[i + 1] + 1);
+                    }
+                    first = new int[]{position};
+                    last = first;
+                    break;
+                case RegexNode.CONCATENATION:
+                    for (int i = 0; i < k - 1; i++) {
+                        for (int j = i + 1; j < k; j++) {
+                            for (int p : lasts[from + i]) {
+                                followSize[p] = addAll(follow, followSize[p], p, firsts[from + j]);
+                            }
+                            if (!node.getChild(j).isNullable()) {
+                                break;
+                            }
+                        }
+                    }
+                    int m = 0;
+                    while (m < k - 1 && node.getChild(m).isNullable()) {
+                        m++;
+                    }
+                    first = union(firsts, from, from + m + 1);
+                    m = k - 1;
+                    while (m > 0 && node.getChild(m).isNullable()) {
+                        m--;
+                    }
+                    last = union(lasts, from + m, results);
+                    break;
+                case RegexNode.ALTERNATION:
+                    first = union(firsts, from, results);
+                    last = union(lasts, from, results);
+                    break;
+                case RegexNode.STAR:
+                case RegexNode.PLUS:
+                    for (int p : lasts[from]) {
+                        followSize[p] = addAll(follow, followSize[p], p, firsts[from]);
+                    }
+                    first = firsts[from];
+                    last = lasts[from];
+                    break;
+                default:
+                    first = firsts[from];
+                    last = lasts[from];
+                    break;
+            }
+            for (int i = from; i < results; i++) {
+                firsts[i] = null;
+                lasts[i] = null;
+            }
+            results = from;
+            if (results == firsts.length) {
+                firsts = Arrays.copyOf(firsts, 2 * results);
+                lasts = Arrays.copyOf(lasts, 2 * results);
+            }
+            firsts[results] = first;
+            lasts[results++] = last;
+        }
+
+        int[][] followSets = new int[positionCount + 1][];
+        for (int p = 1; p <= positionCount; p++) {
+            followSets[p] = distinct(follow[p], followSize[p]);
+        }
+        char[] alphabet = new char[inputAlphabet.cardinality()];
+        int i = 0;
+        for (int symbol = inputAlphabet.nextSetBit(0); symbol >= 0; symbol = inputAlphabet.nextSetBit(symbol + 1)) {
+            alphabet[i++] = (char) symbol;
+        }
+        context.setInputSymbol(alphabet);
+        return new Fragment(Arrays.copyOf(symbols, positionCount + 1), firsts[0], followSets, lasts[0],
+                root.isNullable(), context);
+    }
+
+    /**
+     * Append positions to follow[p], which holds size positions, and return its new size
+     */
+    private static int addAll(int[][] follow, int size, int p, int[] positions) {
+        if (follow[p] == null) {
+            follow[p] = new int[Math.max(4, positions.length)];
+        } else if (size + positions.length > follow[p].length) {
+            follow[p] = Arrays.copyOf(follow[p], Math.max(2 * follow[p].length, size + positions.length));
+        }
+        System.arraycopy(positions, 0, follow[p], size, positions.length);
+        return size + positions.length;
+    }
+
+    /**
+     * Return the concatenation of sets[from .. to): the sets are disjoint and in ascending order
+     */
+    private static int[] union(int[][] sets, int from, int to) {
+        if (to - from == 1) {
+            return sets[from];
+        }
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            length += sets[i].length;
+        }
+        int[] union = new int[length];
+        length = 0;
+        for (int i = from; i < to; i++) {
+            System.arraycopy(sets[i], 0, union, length, sets[i].length);
+            length += sets[i].length;
+        }
+        return union;
+    }
+
+    /**
+     * Return the distinct positions of the first size positions of positions, in ascending order
+     */
+    private static int[] distinct(int[] positions, int size) {
+        if (positions == null) {
+            return new int[0];
+        }
+        Arrays.sort(positions, 0, size);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (count == 0 || positions[i] != positions[count - 1]) {
+                positions[count++] = positions[i];
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+}
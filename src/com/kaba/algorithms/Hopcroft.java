@@ -0,0 +1,273 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.DFA;
+import com.kaba.helper.CharIntMap;
+import com.kaba.helper.CompilationContext;
+import com.kaba.helper.DFAState;
+import com.kaba.helper.RegexNode;
+import com.kaba.helper.State;
+
+import java.util.*;
+
+/**
+ * Hopcroft's DFA minimization algorithm (partition refinement): O(n k log n) for n states and k input symbols
+ * Reference: Hopcroft, "An n log n algorithm for minimizing states in a finite automaton" (1971)
+ */
+public class Hopcroft {
+    /**
+     * Input: complete DFA (as generated by SubsetConstruction: every state has a transition via every input symbol)
+     * Output: minimal equivalent DFA and the number of states removed
+     * Initialize: P = {F, Q \ F} (dropping empty blocks), W = {smaller of F, Q \ F}
+     * Repeat: while W is not empty do
+     *      remove a splitter A from W
+     *      for each input symbol: c  do
+     *          X = set of states that transition to a state in A via c
+     *          for each block Y in P such that Y ∩ X and Y \ X are both non-empty do
+     *              replace Y in P by Y ∩ X and Y \ X
+     *              if Y is in W then
+     *                  add both halves to W (Y itself is kept as one of them)
+     *              else
+     *                  add the smaller half to W
+     *      end
+     * end
+     * Each block of P becomes one state of the minimal DFA
+     */
+    public static Result minimize(DFA dfa) {
+        DFAState[] states = new DFAState[dfa.getStates().size()];
+        Map<Integer, Integer> numbers = new HashMap<>();
+        states[0] = dfa.getStartState();
+        int count = 1;
+        for (DFAState state : dfa.getStates()) {
+            if (state != dfa.getStartState()) {
+                states[count++] = state;
+            }
+        }
+        TreeSet<Character> symbols = new TreeSet<>();
+        for (int i = 0; i < count; i++) {
+            numbers.put(states[i].getId(), i);
+            for (char symbol : states[i].getSymbols()) {
+                symbols.add(symbol);
+            }
+        }
+        char[] alphabet = new char[symbols.size()];
+        int k = 0;
+        for (Character symbol : symbols) {
+            alphabet[k++] = symbol;
+        }
+        boolean[] accepting = new boolean[count];
+        for (DFAState state : dfa.getFinalStates()) {
+            accepting[numbers.get(state.getId())] = true;
+        }
+
+        //Inverse transitions in CSR form: the predecessors of t via alphabet[c] are
+        //inverse[inverseOffsets[c * (count + 1) + t] .. inverseOffsets[c * (count + 1) + t + 1])
+        int[] inverseOffsets = new int[k * (count + 1) + 1];
+        int[] targets = new int[k * count];
+        for (int s = 0; s < count; s++) {
+            for (int c = 0; c < k; c++) {
+                int next = states[s].getTransition(alphabet[c]);
+                int t = next == CharIntMap.NONE ? -1 : numbers.get(next);
+                targets[s * k + c] = t;
+                if (t >= 0) {
+                    inverseOffsets[c * (count + 1) + t + 1]++;
+                }
+            }
+        }
+        for (int i = 1; i < inverseOffsets.length; i++) {
+            inverseOffsets[i] += inverseOffsets[i - 1];
+        }
+        int[] inverse = new int[inverseOffsets[inverseOffsets.length - 1]];
+        int[] fill = Arrays.copyOf(inverseOffsets, inverseOffsets.length);
+        for (int s = 0; s < count; s++) {
+            for (int c = 0; c < k; c++) {
+                int t = targets[s * k + c];
+                if (t >= 0) {
+                    inverse[fill[c * (count + 1) + t]++] = s;
+                }
+            }
+        }
+
+        //Partition: the states of block b are elements[first[b] .. end[b]), position[s] is the index of s in elements
+        int[] elements = new int[count];
+        int[] position = new int[count];
+        int[] blockOf = new int[count];
+        int[] first = new int[count];
+        int[] end = new int[count];
+        int[] marked = new int[count];
+        boolean[] inWorkList = new boolean[count];
+        int blocks = 0;
+        int index = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            int start = index;
+            for (int s = 0; s < count; s++) {
+                if (accepting[s] == (pass == 0)) {
+                    elements[index] = s;
+                    position[s] = index++;
+                    blockOf[s] = blocks;
+                }
+            }
+            if (index > start) {
+                first[blocks] = start;
+                end[blocks] = index;
+                blocks++;
+            }
+        }
+
+        int[] workList = new int[count];
+        int top = 0;
+        if (blocks == 2) {
+            int smaller = end[0] - first[0] <= end[1] - first[1] ? 0 : 1;
+            workList[top++] = smaller;
+            inWorkList[smaller] = true;
+        }
+
+        int[] splitter = new int[count];
+        int[] touched = new int[count];
+        while (top > 0) {
+            int a = workList[--top];
+            inWorkList[a] = false;
+            int splitterSize = end[a] - first[a];
+            System.arraycopy(elements, first[a], splitter, 0, splitterSize);
+            for (int c = 0; c < k; c++) {
+                //Mark every predecessor via c of the splitter by moving it to the front of its block
+                int touchedCount = 0;
+                for (int i = 0; i < splitterSize; i++) {
+                    int t = splitter[i];
+                    for (int j = inverseOffsets[c * (count + 1) + t]; j < inverseOffsets[c * (count + 1) + t + 1]; j++) {
+                        int s = inverse[j];
+                        int b = blockOf[s];
+                        int p = position[s];
+                        int markedEnd = first[b] + marked[b];
+                        if (p < markedEnd) {
+                            continue;
+                        }
+                        if (marked[b] == 0) {
+                            touched[touchedCount++] = b;
+                        }
+                        int other = elements[markedEnd];
+                        elements[markedEnd] = s;
+                        position[s] = markedEnd;
+                        elements[p] = other;
+                        position[other] = p;
+                        marked[b]++;
+                    }
+                }
+                //Split every touched block whose states were not all marked
+                for (int i = 0; i < touchedCount; i++) {
+                    int b = touched[i];
+                    int markedCount = marked[b];
+                    marked[b] = 0;
+                    if (markedCount == end[b] - first[b]) {
+                        continue;
+                    }
+                    int newBlock = blocks++;
+                    first[newBlock] = first[b];
+                    end[newBlock] = first[b] + markedCount;
+                    first[b] = end[newBlock];
+                    for (int j = first[newBlock]; j < end[newBlock]; j++) {
+                        blockOf[elements[j]] = newBlock;
+                    }
+                    if (inWorkList[b]) {
+                        workList[top++] = newBlock;
+                        inWorkList[newBlock] = true;
+                    } else {
+                        int smaller = end[newBlock] - first[newBlock] <= end[b] - first[b] ? newBlock : b;
+                        workList[top++] = smaller;
+                        inWorkList[smaller] = true;
+                    }
+                }
+            }
+        }
+
+        return new Result(buildMinimizedDFA(dfa, states, count, blocks, elements, first, end, blockOf, accepting, alphabet, targets), count);
+    }
+
+    /**
+     * Create one DFAState per block: its component states are the union of the component states of the block, or for
+     * a DFA built by Brzozowski, its expression is the expression of the first state of the block (all the states of a
+     * block accept the same language)
+     * The block of the start state is labelled 'S', the others are labelled by DFAState, and the transitions of each
+     * block are those of its first state (all states of a block agree on the block of their successors)
+     */
+    private static DFA buildMinimizedDFA(DFA dfa, DFAState[] states, int count, int blocks, int[] elements, int[] first,
+                                         int[] end, int[] blockOf, boolean[] accepting, char[] alphabet, int[] targets) {
+        DFAState[] minimized = new DFAState[blocks];
+        CompilationContext context = new CompilationContext();
+        for (int b = 0; b < blocks; b++) {
+            BitSet key = new BitSet();
+            List<State> componentStates = new ArrayList<>();
+            for (int j = first[b]; j < end[b]; j++) {
+                for (State state : states[elements[j]].getComponentStates()) {
+                    if (!key.get(state.getId())) {
+                        key.set(state.getId());
+                        componentStates.add(state);
+                    }
+                }
+            }
+            componentStates.sort(Comparator.comparingInt(State::getId));
+            RegexNode expression = states[elements[first[b]]].getExpression();
+            if (expression != null) {
+                key.set(b);
+                minimized[b] = new DFAState(b == blockOf[0] ? "S" : null, key, expression, context);
+            } else {
+                minimized[b] = b == blockOf[0] ? new DFAState("S", componentStates, context) : new DFAState(key, componentStates, context);
+            }
+        }
+
+        DFA minimizedDFA = new DFA(minimized[blockOf[0]]);
+        minimizedDFA.setAlphabetClasses(dfa.getAlphabetClasses());
+        int k = alphabet.length;
+        for (int b = 0; b < blocks; b++) {
+            int representative = elements[first[b]];
+            if (b != blockOf[0]) {
+                // two blocks may be made of the same NFA states: the key index keeps the first, both states are kept
+                minimizedDFA.add(minimized[b]);
+            }
+            if (accepting[representative]) {
+                minimizedDFA.getFinalStates().add(minimized[b]);
+            }
+            for (int c = 0; c < k; c++) {
+                int t = targets[representative * k + c];
+                if (t >= 0) {
+                    minimized[b].setTransition(alphabet[c], minimized[blockOf[t]].getId());
+                }
+            }
+        }
+        return minimizedDFA;
+    }
+
+    /**
+     * Minimal DFA together with statistics on the states removed by minimization
+     */
+    public static class Result {
+        private final DFA minimizedDFA;
+        private final int originalStateCount;
+
+        Result(DFA minimizedDFA, int originalStateCount) {
+            this.minimizedDFA = minimizedDFA;
+            this.originalStateCount = originalStateCount;
+        }
+
+        public DFA getMinimizedDFA() {
+            return minimizedDFA;
+        }
+
+        public int getOriginalStateCount() {
+            return originalStateCount;
+        }
+
+        public int getMinimizedStateCount() {
+            return minimizedDFA.getStates().size();
+        }
+
+        public int getStatesRemoved() {
+            return originalStateCount - getMinimizedStateCount();
+        }
+
+        @Override
+        public String toString() {
+            return "Minimization: " + originalStateCount + " states => " + getMinimizedStateCount() +
+                    " states (" + getStatesRemoved() + " removed)";
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.CompiledNFA;
+import com.kaba.helper.AlphabetClasses;
+import com.kaba.helper.Fragment;
+
+import java.util.*;
+
+/**
+ * Lazy (on demand) DFA: the subset construction is run while matching instead of ahead of time
+ * A DFA state (a set of NFA states, see SubsetConstruction) and its transition via a symbol are only computed the
+ * first time a scan reaches them, and are then cached in a transition table so that later scans reuse them
+ * The cache is bounded by maxStates: when it is full it is flushed (every cached state is dropped and the current
+ * state is rebuilt), so memory stays around maxStates * (alphabet classes * 4 + NFA states / 8) bytes however large the
+ * full DFA would be, e.g. for (a|b)*a(a|b)(a|b)... whose DFA doubles with every (a|b)
+ * If one scan flushes the cache more than MAX_FLUSHES times the cache is thrashing, and the rest of that scan falls back
+ * to NFA simulation (see NFASimulator), which needs no cache at all
+ * A LazyDFA is mutable and not thread safe: it must only be used by one thread at a time
+ */
+public class LazyDFA {
+    public static final int DEAD = -1;
+    public static final int DEFAULT_MAX_STATES = 10_000;
+    private static final int UNKNOWN = -2;
+    private static final int MAX_FLUSHES = 3;
+
+    private final CompiledNFA NFA;
+    private final EpsilonClosure eClosure;
+    private final NFASimulator simulator;
+    private final int maxStates;
+    private final AlphabetClasses alphabetClasses;
+    private final int columnCount;
+    private final int[] columns;
+
+    private final Map<BitSet, Integer> index = new HashMap<>();
+    private BitSet[] sets;
+    private int[] table;
+    private long[] accepting;
+    private int stateCount;
+
+    private long statesBuilt;
+    private long flushes;
+    private long fallbacks;
+
+    public LazyDFA(CompiledNFA NFA) {
+        this(NFA, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Create a LazyDFA over NFA with one column per alphabet class of NFA
+     */
+    public LazyDFA(CompiledNFA NFA, int maxStates) {
+        this(NFA, NFA.getAlphabetClasses(), maxStates);
+    }
+
+    /**
+     * Create a LazyDFA over NFA with one column per alphabet class, that caches at most maxStates DFA states (at least
+     * 2: the start state and one other)
+     */
+    public LazyDFA(CompiledNFA NFA, AlphabetClasses alphabetClasses, int maxStates) {
+        if (maxStates < 2) {
+            throw new IllegalArgumentException("A lazy DFA needs room for at least 2 states: " + maxStates);
+        }
+        this.NFA = NFA;
+        this.eClosure = new EpsilonClosure(NFA);
+        this.simulator = new NFASimulator(NFA);
+        this.maxStates = maxStates;
+        this.alphabetClasses = alphabetClasses;
+        this.columnCount = alphabetClasses.getClassCount();
+        this.columns = alphabetClasses.toLookupTable();
+        int capacity = Math.min(maxStates, 16);
+        sets = new BitSet[capacity];
+        table = new int[capacity * columnCount];
+        accepting = new long[(capacity + 63) >>> 6];
+        flush();
+    }
+
+    /**
+     * Return a LazyDFA for the NFA Fragment generated by Thompson, over the alphabet classes of its context
+     */
+    public static LazyDFA of(Fragment NFA, int maxStates) {
+        return new LazyDFA(CompiledNFA.compile(NFA), maxStates);
+    }
+
+    /**
+     * Return true if the whole of input is in the language of the NFA
+     */
+    public boolean matches(CharSequence input) {
+        return scan(input, 0, true) >= 0;
+    }
+
+    /**
+     * Return the end (exclusive) of the longest match that starts at from, or -1 if no match starts at from
+     * An empty match (when the start state accepts) ends at from
+     */
+    public int longestMatch(CharSequence input, int from) {
+        return scan(input, from, false);
+    }
+
+    /**
+     * Return the start of the leftmost match in input at or after from, or -1 if there is none
+     * The end of that match is longestMatch(input, start)
+     * This is a single pass over input with one thread per start position, as in DFAMatcher.find, over the cached
+     * states. A flush renumbers the cached states under the threads, so if the cache is flushed during a find the rest of
+     * it is done by NFASimulator.find from the start of the leftmost thread left: every start before it is known not to
+     * match
+     */
+    public int find(CharSequence input, int from) {
+        int length = input.length();
+        if (from > length) {
+            return -1;
+        }
+        long flushesAtStart = flushes;
+        int[] states = new int[16];
+        int[] starts = new int[16];
+        int[] nextStates = new int[16];
+        int[] nextStarts = new int[16];
+        int[] marks = new int[sets.length];
+        int size = 0;
+        int best = -1;
+        for (int i = from; ; i++) {
+            int mark = i - from + 1;
+            if (best < 0 && marks[0] != mark) {
+                marks[0] = mark;
+                if (size == states.length) {
+                    states = Arrays.copyOf(states, 2 * size);
+                    starts = Arrays.copyOf(starts, 2 * size);
+                }
+                states[size] = 0;
+                starts[size++] = i;
+            }
+            for (int t = 0; t < size; t++) {
+                if (isAccepting(states[t]) && (best < 0 || starts[t] < best)) {
+                    best = starts[t];
+                }
+            }
+            if (best >= 0) {
+                int kept = 0;
+                while (kept < size && starts[kept] < best) {
+                    kept++;
+                }
+                size = kept;
+            }
+            if (size == 0 || i == length) {
+                return best;
+            }
+            char symbol = input.charAt(i);
+            int column = symbol < columns.length ? columns[symbol] : DEAD;
+            if (nextStates.length < states.length) {
+                nextStates = new int[states.length];
+                nextStarts = new int[states.length];
+            }
+            int nextSize = 0;
+            for (int t = 0; column != DEAD && t < size; t++) {
+                int next = table[states[t] * columnCount + column];
+                if (next == UNKNOWN) {
+                    next = transition(states[t], column);
+                    if (flushes != flushesAtStart) {
+                        fallbacks++;
+                        return simulator.find(input, starts[0]);
+                    }
+                    if (marks.length < sets.length) {
+                        marks = Arrays.copyOf(marks, sets.length);
+                    }
+                }
+                if (next != DEAD && marks[next] != mark + 1) {
+                    marks[next] = mark + 1;
+                    nextStates[nextSize] = next;
+                    nextStarts[nextSize++] = starts[t];
+                }
+            }
+            int[] swap = states;
+            states = nextStates;
+            nextStates = swap;
+            swap = starts;
+            starts = nextStarts;
+            nextStarts = swap;
+            size = nextSize;
+        }
+    }
+
+    /**
+     * Return true if any substring of input is in the language of the NFA
+     */
+    public boolean find(CharSequence input) {
+        return find(input, 0) >= 0;
+    }
+
+    /**
+     * Run the lazy DFA over input from from
+     * If whole is true: return input.length() if the whole of input from from is accepted, otherwise -1
+     * If whole is false: return the end of the longest accepted prefix, otherwise -1
+     * Algorithm:
+     *  state = start state (always 0, see flush)
+     *  for each input character: a  do
+     *      if DTran[state, a] is not cached then
+     *          if this scan has flushed the cache more than MAX_FLUSHES times then
+     *              continue the scan by NFA simulation from the NFA states of state
+     *          DTran[state, a] = ε-closure(move(state, a)), flushing the cache first if it is full
+     *      state = DTran[state, a]
+     *  end
+     */
+    private int scan(CharSequence input, int from, boolean whole) {
+        long flushesAtStart = flushes;
+        int length = input.length();
+        int state = 0;
+        int end = isAccepting(state) ? from : -1;
+        for (int i = from; i < length; i++) {
+            char symbol = input.charAt(i);
+            int column = symbol < columns.length ? columns[symbol] : DEAD;
+            if (column == DEAD) {
+                return whole ? -1 : end;
+            }
+            int next = table[state * columnCount + column];
+            if (next == UNKNOWN) {
+                if (flushes - flushesAtStart > MAX_FLUSHES) {
+                    fallbacks++;
+                    return simulator.scan(sets[state], input, i, end, whole);
+                }
+                next = transition(state, column);
+            }
+            if (next == DEAD) {
+                return whole ? -1 : end;
+            }
+            state = next;
+            if (isAccepting(state)) {
+                end = i + 1;
+            }
+        }
+        if (whole) {
+            return isAccepting(state) ? length : -1;
+        }
+        return end;
+    }
+
+    /**
+     * Compute, cache and return DTran[state, column]: ε-closure(move(state, representative of column)), or DEAD if it is empty
+     * If the target is a new DFA state and the cache is full, the cache is flushed before the target is added: state
+     * is then no longer valid and the transition is not recorded
+     */
+    private int transition(int state, int column) {
+        BitSet target = eClosure.closure(eClosure.move(sets[state], alphabetClasses.getRepresentative(column)));
+        if (target.isEmpty()) {
+            table[state * columnCount + column] = DEAD;
+            return DEAD;
+        }
+        Integer existing = index.get(target);
+        if (existing != null) {
+            table[state * columnCount + column] = existing;
+            return existing;
+        }
+        if (stateCount == maxStates) {
+            flush();
+            return add(target);
+        }
+        int next = add(target);
+        table[state * columnCount + column] = next;
+        return next;
+    }
+
+    /**
+     * Add a new DFA state for the set of NFA states set and return its number
+     */
+    private int add(BitSet set) {
+        if (stateCount == sets.length) {
+            int capacity = Math.min(maxStates, sets.length * 2);
+            sets = Arrays.copyOf(sets, capacity);
+            int oldLength = table.length;
+            table = Arrays.copyOf(table, capacity * columnCount);
+            Arrays.fill(table, oldLength, table.length, UNKNOWN);
+            accepting = Arrays.copyOf(accepting, (capacity + 63) >>> 6);
+        }
+        int state = stateCount++;
+        sets[state] = set;
+        index.put(set, state);
+        if (NFA.containsFinal(set)) {
+            accepting[state >>> 6] |= 1L << state;
+        }
+        statesBuilt++;
+        return state;
+    }
+
+    /**
+     * Drop every cached state and transition, then add the start state (ε-closure of the NFA start state) as state 0
+     */
+    private void flush() {
+        if (stateCount > 0) {
+            flushes++;
+        }
+        index.clear();
+        Arrays.fill(sets, 0, stateCount, null);
+        Arrays.fill(table, UNKNOWN);
+        Arrays.fill(accepting, 0);
+        stateCount = 0;
+        add(eClosure.closure(NFA.getStartState()));
+    }
+
+    private boolean isAccepting(int state) {
+        return (accepting[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * Returns the number of DFA states currently cached
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getMaxStates() {
+        return maxStates;
+    }
+
+    /**
+     * Returns the number of DFA states built since this LazyDFA was created (including the ones since flushed)
+     */
+    public long getStatesBuilt() {
+        return statesBuilt;
+    }
+
+    /**
+     * Returns the number of times the cache was flushed because it was full
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * Returns the number of scans that fell back to NFA simulation
+     */
+    public long getFallbacks() {
+        return fallbacks;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyDFA: " +
+                "\nstates: " + stateCount + " of " + maxStates +
+                "\nstates built: " + statesBuilt +
+                "\nflushes: " + flushes +
+                "\nfallbacks: " + fallbacks +
+                "\nalphabet: " + alphabetClasses +
+                "\nEnd Of LazyDFA";
+    }
+}
@@ -0,0 +1,119 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.CompiledNFA;
+import com.kaba.automata.Lexer;
+import com.kaba.helper.AlphabetClasses;
+import com.kaba.helper.CompilationContext;
+import com.kaba.helper.Fragment;
+import com.kaba.helper.LexerRule;
+import com.kaba.helper.Regex;
+import com.kaba.helper.State;
+
+import java.util.*;
+
+/**
+ * Generates a Lexer (a maximal munch tokenizer) from an ordered list of token rules
+ * The NFA of every rule is built by Thompson in one shared CompilationContext and the NFAs are joined under a new start
+ * state that transitions via ε to the start of each of them (like alternation, but every rule keeps its own final
+ * state). The subset construction then tags every DFA state with the rule it accepts
+ */
+public class LexerGenerator {
+    /**
+     * Input: ordered list of token rules (the earlier the rule, the higher its priority)
+     * Output: Lexer
+     * Initialize: Let ε-closure (s0) be state 0 of DStates
+     * Repeat: while there are unmarked states  T  in  DStates  do
+     *      mark T
+     *      for each alphabet class (see AlphabetClasses): a  do
+     *          U = ε-closure(move(T, a))
+     *          if U is empty then
+     *              DTran[T, a] = DEAD
+     *          else
+     *              if U is not in DStates then
+     *                  add U as unmarked state in  DStates
+     *                  the rule of U is the first rule whose NFA final state is in U, if any
+     *              DTran[T, a] = U
+     *      end
+     * end
+     * Throws IllegalArgumentException if there are no rules or a rule is not a valid regular expression
+     */
+    public static Lexer generate(List<LexerRule> rules) throws IllegalArgumentException {
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("A lexer needs at least one token rule");
+        }
+        CompilationContext context = new CompilationContext();
+        Fragment NFA = new Fragment(context);
+        String[] tokenNames = new String[rules.size()];
+        int[] finalStates = new int[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            LexerRule rule = rules.get(i);
+            Fragment ruleNFA;
+            try {
+                ruleNFA = Thompson.postfixToNFA(Regex.simplify(Regex.infixToPostfix(rule.getRegex())), context);
+            } catch (IllegalArgumentException | EmptyStackException e) {
+                throw new IllegalArgumentException("Token rule " + rule.getName() + ": " +
+                        (e.getMessage() == null ? "You entered an invalid regular expression: " + rule.getRegex() : e.getMessage()), e);
+            }
+            tokenNames[i] = rule.getName();
+            finalStates[i] = ruleNFA.getFinalState().getId();
+            NFA.epsilonTransitionToFragmentViaStart(ruleNFA);
+        }
+
+        CompiledNFA compiledNFA = CompiledNFA.compile(NFA);
+        EpsilonClosure eClosure = new EpsilonClosure(compiledNFA);
+        int[] ruleOf = new int[compiledNFA.getStateCount()];
+        Arrays.fill(ruleOf, Lexer.NO_RULE);
+        for (int i = 0; i < finalStates.length; i++) {
+            ruleOf[finalStates[i]] = i;
+        }
+        AlphabetClasses classes = compiledNFA.getAlphabetClasses();
+        int k = classes.getClassCount();
+
+        Map<BitSet, Integer> numbers = new HashMap<>();
+        List<BitSet> dStates = new ArrayList<>();
+        int[] acceptingRules = new int[16];
+        int[] table = new int[16 * k];
+        BitSet start = eClosure.closure(compiledNFA.getStartState());
+        numbers.put(start, 0);
+        dStates.add(start);
+        acceptingRules[0] = acceptingRule(start, ruleOf);
+        for (int current = 0; current < dStates.size(); current++) {
+            BitSet T = dStates.get(current);
+            for (int c = 0; c < k; c++) {
+                BitSet U = eClosure.closure(eClosure.move(T, c));
+                int target = Lexer.DEAD;
+                if (!U.isEmpty()) {
+                    Integer existing = numbers.get(U);
+                    if (existing == null) {
+                        target = dStates.size();
+                        numbers.put(U, target);
+                        dStates.add(U);
+                        if (target == acceptingRules.length) {
+                            acceptingRules = Arrays.copyOf(acceptingRules, target * 2);
+                            table = Arrays.copyOf(table, target * 2 * k);
+                        }
+                        acceptingRules[target] = acceptingRule(U, ruleOf);
+                    } else {
+                        target = existing;
+                    }
+                }
+                table[current * k + c] = target;
+            }
+        }
+        int stateCount = dStates.size();
+        return new Lexer(tokenNames, classes, Arrays.copyOf(table, stateCount * k), Arrays.copyOf(acceptingRules, stateCount));
+    }
+
+    /**
+     * Return the highest priority (lowest index) rule whose final state is in the set of NFA states, or NO_RULE
+     */
+    private static int acceptingRule(BitSet states, int[] ruleOf) {
+        int rule = Lexer.NO_RULE;
+        for (int id = states.nextSetBit(0); id >= 0; id = states.nextSetBit(id + 1)) {
+            if (ruleOf[id] != Lexer.NO_RULE && (rule == Lexer.NO_RULE || ruleOf[id] < rule)) {
+                rule = ruleOf[id];
+            }
+        }
+        return rule;
+    }
+}
@@ -0,0 +1,25 @@
+package com.kaba.algorithms;
+
+import com.kaba.helper.CompilationContext;
+import com.kaba.helper.Fragment;
+import com.kaba.helper.RegexToken;
+
+import java.util.*;
+
+/**
+ * Construction of an NFA Fragment from a postfix expression (see Regex.infixToPostfix), chosen per compilation (see
+ * RegexCompiler):
+ *  THOMPSON:   Thompson.postfixToNFA, O(n) states and transitions, with ε transitions
+ *  GLUSHKOV:   Glushkov.postfixToNFA, exactly n + 1 states and no ε transition, but up to O(n^2) transitions
+ * for n input symbols
+ */
+public interface NFAConstruction {
+    NFAConstruction THOMPSON = Thompson::postfixToNFA;
+    NFAConstruction GLUSHKOV = Glushkov::postfixToNFA;
+
+    /**
+     * Return the NFA of the postfix expression queue, built in context
+     * Throws EmptyStackException if queue is not a valid postfix expression
+     */
+    Fragment postfixToNFA(Queue<RegexToken> queue, CompilationContext context) throws EmptyStackException;
+}
@@ -0,0 +1,254 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.CompiledNFA;
+import com.kaba.helper.AlphabetClasses;
+import com.kaba.helper.Fragment;
+
+import java.util.*;
+
+/**
+ * Thompson simulation of an NFA: the NFA is run directly, without converting it to a DFA
+ * The set of active NFA states is kept as a list of state ids (Pike VM style thread list) plus a generation stamp per
+ * state that tells in O(1) whether a state is already in the list being built. Every input character advances all the
+ * active states at once, so a scan takes O(n * m) time for n input characters and m NFA states, and the only memory
+ * used is a handful of int[m] arrays allocated once, whatever the size of the DFA of the NFA would be
+ * A NFASimulator reuses those arrays between scans, so it is not thread safe: it must only be used by one thread at a time
+ */
+public class NFASimulator {
+    private final CompiledNFA NFA;
+    private final int finalState;
+    private final boolean singleFinalState;
+
+    private int[] current;
+    private int[] currentStarts;
+    private int currentSize;
+    private int[] next;
+    private int[] nextStarts;
+    private final int[] marks;
+    private final int[] stack;
+    private int generation;
+
+    public NFASimulator(CompiledNFA NFA) {
+        this.NFA = NFA;
+        this.finalState = NFA.getFinalState();
+        this.singleFinalState = NFA.getFinalStates().cardinality() == 1;
+        int stateCount = NFA.getStateCount();
+        current = new int[stateCount];
+        currentStarts = new int[stateCount];
+        next = new int[stateCount];
+        nextStarts = new int[stateCount];
+        marks = new int[stateCount];
+        stack = new int[stateCount];
+    }
+
+    /**
+     * Return a NFASimulator for the NFA Fragment generated by Thompson
+     */
+    public static NFASimulator of(Fragment NFA) {
+        return new NFASimulator(CompiledNFA.compile(NFA));
+    }
+
+    /**
+     * Return true if the whole of input is in the language of the NFA
+     */
+    public boolean matches(CharSequence input) {
+        return scan(null, input, 0, -1, true) >= 0;
+    }
+
+    /**
+     * Return the end (exclusive) of the longest match that starts at from, or -1 if no match starts at from
+     * An empty match (when the start state accepts) ends at from
+     */
+    public int longestMatch(CharSequence input, int from) {
+        return scan(null, input, from, -1, false);
+    }
+
+    /**
+     * Return the start of the leftmost match in input at or after from, or -1 if there is none
+     * The end of that match is longestMatch(input, start)
+     * Unlike trying longestMatch at every start, this is a single pass over input: every thread carries the position at
+     * which it started, a new thread is started at every position until a match is found, and a state reached by
+     * several threads keeps the one that started first
+     * Algorithm:
+     *  best = -1
+     *  for each position: i  from from to the end of input  do
+     *      if best = -1 then add ε-closure(start state) with start i to the list
+     *      if a thread in the list is in a final state then best = min(best, its start)
+     *      drop the threads that did not start before best: they cannot lead to a match further left
+     *      if the list is empty then stop
+     *      list = ε-closure(move(list, input[i])), each thread keeping its start
+     *  end
+     */
+    public int find(CharSequence input, int from) {
+        int length = input.length();
+        if (from > length) {
+            return -1;
+        }
+        int best = -1;
+        clearCurrent();
+        for (int i = from; ; i++) {
+            if (best < 0) {
+                currentSize = addClosure(current, currentStarts, currentSize, NFA.getStartState(), i);
+            }
+            int kept = 0;
+            for (int t = 0; t < currentSize; t++) {
+                if (NFA.isFinal(current[t]) && (best < 0 || currentStarts[t] < best)) {
+                    best = currentStarts[t];
+                }
+            }
+            for (int t = 0; t < currentSize; t++) {
+                if (best < 0 || currentStarts[t] < best) {
+                    current[kept] = current[t];
+                    currentStarts[kept++] = currentStarts[t];
+                }
+            }
+            currentSize = kept;
+            if (currentSize == 0 || i == length) {
+                return best;
+            }
+            step(input.charAt(i));
+        }
+    }
+
+    /**
+     * Return true if any substring of input is in the language of the NFA
+     */
+    public boolean find(CharSequence input) {
+        return find(input, 0) >= 0;
+    }
+
+    /**
+     * Simulate the NFA over input from from, starting in the set of NFA states initial (already closed under ε) or, if
+     * initial is null, in the ε-closure of the start state. end is the end of the longest match found before from
+     * If whole is true: return input.length() if the whole of input from from is accepted, otherwise -1
+     * If whole is false: return the end of the longest accepted prefix, otherwise end
+     */
+    int scan(BitSet initial, CharSequence input, int from, int end, boolean whole) {
+        int length = input.length();
+        clearCurrent();
+        if (initial == null) {
+            currentSize = addClosure(current, currentStarts, currentSize, NFA.getStartState(), from);
+        } else {
+            for (int id = initial.nextSetBit(0); id >= 0; id = initial.nextSetBit(id + 1)) {
+                currentSize = addClosure(current, currentStarts, currentSize, id, from);
+            }
+        }
+        boolean accepting = hasFinalState();
+        if (accepting) {
+            end = from;
+        }
+        for (int i = from; i < length; i++) {
+            accepting = step(input.charAt(i));
+            if (currentSize == 0) {
+                return whole ? -1 : end;
+            }
+            if (accepting) {
+                end = i + 1;
+            }
+        }
+        if (whole) {
+            return accepting ? length : -1;
+        }
+        return end;
+    }
+
+    /**
+     * Advance every thread of the current list via input: the next list is the ε-closure of the targets of the threads
+     * in list order, so each target keeps the start of the first thread that reached it
+     * input is looked up once in the alphabet classes of the NFA, then each thread follows its transitions via that class
+     * Return true if a final state is in the new current list
+     */
+    private boolean step(char input) {
+        newGeneration();
+        int nextSize = 0;
+        int inputClass = NFA.classOf(input);
+        for (int t = 0; inputClass != AlphabetClasses.NONE && t < currentSize; t++) {
+            int state = current[t];
+            int end = NFA.transitionEnd(state);
+            for (int i = NFA.firstTransition(state, inputClass); i < end && NFA.transitionClass(i) == inputClass; i++) {
+                nextSize = addClosure(next, nextStarts, nextSize, NFA.transitionTarget(i), currentStarts[t]);
+            }
+        }
+        int[] swap = current;
+        current = next;
+        next = swap;
+        swap = currentStarts;
+        currentStarts = nextStarts;
+        nextStarts = swap;
+        currentSize = nextSize;
+        return hasFinalState();
+    }
+
+    /**
+     * Return true if a final state is in the current list: a single final state (Thompson) is checked by its mark,
+     * otherwise (position automaton, see Glushkov) the list is searched
+     */
+    private boolean hasFinalState() {
+        if (singleFinalState) {
+            return isMarked(finalState);
+        }
+        for (int t = 0; t < currentSize; t++) {
+            if (NFA.isFinal(current[t])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add state and every state reachable from it via ε that are not yet marked in this generation to list, with start
+     * Return the new size of list
+     */
+    private int addClosure(int[] list, int[] starts, int size, int state, int start) {
+        if (marks[state] == generation) {
+            return size;
+        }
+        marks[state] = generation;
+        int top = 0;
+        stack[top++] = state;
+        while (top > 0) {
+            int s = stack[--top];
+            list[size] = s;
+            starts[size++] = start;
+            for (int i = NFA.epsilonStart(s); i < NFA.epsilonEnd(s); i++) {
+                int target = NFA.epsilonTarget(i);
+                if (marks[target] != generation) {
+                    marks[target] = generation;
+                    stack[top++] = target;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Empty the current list and start a new generation for it
+     */
+    private void clearCurrent() {
+        newGeneration();
+        currentSize = 0;
+    }
+
+    private boolean isMarked(int state) {
+        return marks[state] == generation;
+    }
+
+    /**
+     * Start a new generation: every state is unmarked. The stamps are only reset when the counter wraps around
+     */
+    private void newGeneration() {
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            generation = 0;
+        }
+        generation++;
+    }
+
+    @Override
+    public String toString() {
+        return "NFASimulator: " +
+                "\nstates: " + NFA.getStateCount() +
+                "\nalphabet: " + NFA.getAlphabetClasses() +
+                "\nEnd Of NFASimulator";
+    }
+}
@@ -0,0 +1,136 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.CompiledRegex;
+import com.kaba.helper.Regex;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of compiled regular expressions (NFA and DFA) keyed by normalized regex text (see Regex.normalize)
+ * Each entry is weighed by the size of its automata (see weigh) and the least recently used entries are evicted once
+ * the total weight goes over maxWeight. Hits, misses and evictions are counted
+ * The cache is thread safe: it can be shared by the GraphWindows and by any number of RegexCompilers
+ */
+public class RegexCache {
+    private final long maxWeight;
+    private long weight = 0;
+    private final LinkedHashMap<String, CompiledRegex> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RegexCache(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("The maximum weight of the cache must be positive");
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Return the compiled form of regex: from the cache if it is present, else compile it and add it to the cache
+     * Throws IllegalArgumentException if regex is not a valid regular expression (invalid regexes are not cached)
+     */
+    public CompiledRegex get(String regex) throws IllegalArgumentException {
+        String key = Regex.normalize(regex);
+        CompiledRegex compiled = lookup(key);
+        if (compiled != null) {
+            return compiled;
+        }
+        //Compile outside of the lock so that other regexes can be looked up in the meantime. The regex is compiled as
+        //given, not normalized, so that the positions in its error messages are those of the text that was entered
+        compiled = RegexCompiler.compile(regex);
+        return put(regex, compiled);
+    }
+
+    /**
+     * Return the cached compiled form of regex or null, counting a hit or a miss
+     */
+    public CompiledRegex getIfPresent(String regex) {
+        return lookup(Regex.normalize(regex));
+    }
+
+    private CompiledRegex lookup(String key) {
+        CompiledRegex compiled;
+        synchronized (this) {
+            compiled = entries.get(key);
+        }
+        if (compiled == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return compiled;
+    }
+
+    /**
+     * Add compiled to the cache under the normalized form of regex and return the cached entry: if another thread added
+     * the same regex first, its entry is kept and returned
+     * An entry heavier than maxWeight on its own is returned but not kept, and nothing is evicted for it. Otherwise least
+     * recently used entries are then evicted until the weight of the cache is at most maxWeight
+     */
+    public synchronized CompiledRegex put(String regex, CompiledRegex compiled) {
+        String key = Regex.normalize(regex);
+        CompiledRegex existing = entries.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        long compiledWeight = weigh(compiled);
+        if (compiledWeight > maxWeight) {
+            return compiled;
+        }
+        entries.put(key, compiled);
+        weight += compiledWeight;
+        Iterator<CompiledRegex> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= weigh(eldest.next());
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+        return compiled;
+    }
+
+    /**
+     * Weight of a compiled regex: its number of NFA states plus the number of DFA transitions
+     * (DFA states * number of alphabet classes) which dominate the memory used by an entry
+     */
+    public static long weigh(CompiledRegex compiled) {
+        return compiled.getNFA().getStateCount()
+                + (long) compiled.getDFA().getStates().size() * Math.max(1, compiled.getDFA().getAlphabetClasses().getClassCount());
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RegexCache {entries: " + size() + ", weight: " + getWeight() + "/" + maxWeight + ", hits: " + getHitCount() +
+                ", misses: " + getMissCount() + ", evictions: " + getEvictionCount() + "}";
+    }
+}
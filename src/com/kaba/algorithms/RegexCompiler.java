@@ -0,0 +1,132 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.CompiledRegex;
+import com.kaba.automata.DFA;
+import com.kaba.helper.CompilationContext;
+import com.kaba.helper.Fragment;
+import com.kaba.helper.Regex;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compiles regular expressions through the whole pipeline: Regex.infixToPostfix => Regex.simplify =>
+ * Thompson.postfixToNFA => SubsetConstruction.subsetConstruction
+ * The NFA is built by Thompson unless another NFAConstruction (e.g. Glushkov) is given for the compilation, and
+ * compileDFA builds the DFA alone with a given DFAConstruction (e.g. Brzozowski derivatives)
+ * Each compilation runs in its own CompilationContext, so a batch of regexes is compiled in parallel on an Executor
+ * (the common ForkJoinPool by default) and each result is returned as a future
+ * When a RegexCache is given, regexes are looked up in (and added to) the cache instead of always being compiled
+ */
+public class RegexCompiler {
+    private final Executor executor;
+    private final RegexCache cache;
+
+    public RegexCompiler() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public RegexCompiler(Executor executor) {
+        this(executor, null);
+    }
+
+    public RegexCompiler(Executor executor, RegexCache cache) {
+        this.executor = executor;
+        this.cache = cache;
+    }
+
+    /**
+     * Compile regex on the calling thread
+     * Throws IllegalArgumentException (or EmptyStackException) if regex is not a valid regular expression
+     */
+    public static CompiledRegex compile(String regex) throws IllegalArgumentException {
+        return compile(regex, NFAConstruction.THOMPSON);
+    }
+
+    /**
+     * Same as compile(String regex), with the NFA built by construction (see NFAConstruction)
+     */
+    public static CompiledRegex compile(String regex, NFAConstruction construction) throws IllegalArgumentException {
+        CompilationContext context = new CompilationContext();
+        Fragment NFA = construction.postfixToNFA(Regex.simplify(Regex.infixToPostfix(regex)), context);
+        DFA dfa = SubsetConstruction.subsetConstruction(NFA);
+        return new CompiledRegex(regex, NFA, dfa);
+    }
+
+    /**
+     * Compile regex to a DFA only on the calling thread, with the DFA built by construction (see DFAConstruction)
+     * Throws IllegalArgumentException (or EmptyStackException) if regex is not a valid regular expression
+     */
+    public static DFA compileDFA(String regex, DFAConstruction construction) throws IllegalArgumentException {
+        return construction.postfixToDFA(Regex.simplify(Regex.infixToPostfix(regex)), new CompilationContext());
+    }
+
+    /**
+     * Compile regex to a LazyDFA on the calling thread: only the NFA is built ahead of time, DFA states are built while
+     * matching and at most maxStates of them are cached (see LazyDFA)
+     * Throws IllegalArgumentException (or EmptyStackException) if regex is not a valid regular expression
+     */
+    public static LazyDFA compileLazy(String regex, int maxStates) throws IllegalArgumentException {
+        return compileLazy(regex, maxStates, NFAConstruction.THOMPSON);
+    }
+
+    /**
+     * Same as compileLazy(String regex, int maxStates), with the NFA built by construction (see NFAConstruction)
+     */
+    public static LazyDFA compileLazy(String regex, int maxStates, NFAConstruction construction) throws IllegalArgumentException {
+        Fragment NFA = construction.postfixToNFA(Regex.simplify(Regex.infixToPostfix(regex)), new CompilationContext());
+        return LazyDFA.of(NFA, maxStates);
+    }
+
+    /**
+     * Compile regex to a NFASimulator on the calling thread: only the NFA is built, it is matched by Thompson simulation
+     * Throws IllegalArgumentException (or EmptyStackException) if regex is not a valid regular expression
+     */
+    public static NFASimulator compileSimulator(String regex) throws IllegalArgumentException {
+        return compileSimulator(regex, NFAConstruction.THOMPSON);
+    }
+
+    /**
+     * Same as compileSimulator(String regex), with the NFA built by construction (see NFAConstruction)
+     */
+    public static NFASimulator compileSimulator(String regex, NFAConstruction construction) throws IllegalArgumentException {
+        Fragment NFA = construction.postfixToNFA(Regex.simplify(Regex.infixToPostfix(regex)), new CompilationContext());
+        return NFASimulator.of(NFA);
+    }
+
+    /**
+     * Compile regex on the executor, or take it from the cache if this compiler has one
+     * An invalid regex completes the future exceptionally with the exception thrown by compile(String regex)
+     */
+    public CompletableFuture<CompiledRegex> compileAsync(String regex) {
+        return CompletableFuture.supplyAsync(() -> cache == null ? compile(regex) : cache.get(regex), executor);
+    }
+
+    /**
+     * Returns the cache used by this compiler or null
+     */
+    public RegexCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Compile every regex of the batch in parallel on the executor
+     * Returns one future per regex, in the order of the batch
+     */
+    public List<CompletableFuture<CompiledRegex>> compileAll(Collection<String> regexes) {
+        List<CompletableFuture<CompiledRegex>> futures = new ArrayList<>(regexes.size());
+        for (String regex : regexes) {
+            futures.add(compileAsync(regex));
+        }
+        return futures;
+    }
+
+    /**
+     * Returns a future that completes when every future of compileAll has completed
+     */
+    public static CompletableFuture<Void> allOf(List<CompletableFuture<CompiledRegex>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+}
@@ -1,6 +1,8 @@
 package com.kaba.algorithms;
 
+import com.kaba.automata.CompiledNFA;
 import com.kaba.automata.DFA;
+import com.kaba.helper.AlphabetClasses;
 import com.kaba.helper.DFAState;
 import com.kaba.helper.Fragment;
 import com.kaba.helper.State;
@@ -22,56 +24,71 @@ public class SubsetConstruction {
      *          U = ε-closure(move(T, a))
      *          if U is not in DStates then
      *              add U as unmarked state in  DStates
-     *              If U contains final state of NFA:
+     *              If U contains a final state of NFA:
      *                  add U to the final states set of DFA
      *          DTran[T, a] = U
      *      end
      * end
-     *
+     * Input symbols are the alphabet classes of the NFA (see AlphabetClasses): the characters of a class all have the
+     * same move, so it is computed once per class, and the transition is only recorded for the representative of the
+     * class
      */
     public static DFA subsetConstruction(Fragment NFA){
         Queue<DFAState> dfaStates = new LinkedList<>();
         DFA generatedDFA;
+        CompiledNFA compiledNFA = CompiledNFA.compile(NFA);
+        EpsilonClosure eClosure = new EpsilonClosure(compiledNFA);
+        State[] nfaStates = statesById(NFA, compiledNFA.getStateCount());
+        AlphabetClasses classes = compiledNFA.getAlphabetClasses();
 
-        State startState = NFA.getStartState();
-        List<State> startEClosure = startState.getEClosure();
+        BitSet startEClosure = eClosure.closure(compiledNFA.getStartState());
 
-        DFAState start = new DFAState('S', startEClosure);
+        DFAState start = new DFAState("S", toStates(startEClosure, nfaStates), NFA.getContext());
         generatedDFA = new DFA(start);
+        generatedDFA.setAlphabetClasses(classes);
+        if(compiledNFA.containsFinal(startEClosure)){
+            generatedDFA.getFinalStates().add(start);
+        }
         dfaStates.add(start);
         while (!dfaStates.isEmpty()) {
             DFAState current = dfaStates.remove();
-            for (char input : Fragment.getInputSymbol()) {
-                LinkedList<State> dTran = new LinkedList<>();
-                DFAState newState;
-                for (State move : move(current.getComponentStates(), input)) {
-                    move.getEClosure().stream().filter(moveState -> !dTran.contains(moveState)).forEach(dTran::add);
-                }
-                if(!generatedDFA.exists(dTran)) {
-                    newState = new DFAState(dTran);
+            for (int c = 0; c < classes.getClassCount(); c++) {
+                char input = classes.getRepresentative(c);
+                BitSet dTranKey = eClosure.closure(eClosure.move(current.getKey(), c));
+                DFAState newState = generatedDFA.getStateFromKey(dTranKey);
+                if(newState == null) {
+                    newState = new DFAState(dTranKey, toStates(dTranKey, nfaStates), NFA.getContext());
                     generatedDFA.add(newState);
                     dfaStates.add(newState);
-                    if(dTran.contains(NFA.getFinalState())){
+                    if(compiledNFA.containsFinal(dTranKey)){
                         generatedDFA.getFinalStates().add(newState);
                     }
-                } else {
-                    newState = generatedDFA.getStateFromList(dTran);
                 }
-                current.updateTransitions(input, newState.getLabel());
+                current.setTransition(input, newState.getId());
             }
         }
-        DFAState.resetLabelCount();
         return generatedDFA;
     }
 
     /**
-     * Return list of states that can be transitioned to from the current list via char input
+     * Return the states of the NFA indexed by their ids
+     */
+    private static State[] statesById(Fragment NFA, int stateCount) {
+        State[] states = new State[stateCount];
+        for (State state : NFA.getStates()) {
+            states[state.getId()] = state;
+        }
+        return states;
+    }
+
+    /**
+     * Return the list of States whose ids are set in the BitSet set
      */
-    private static List<State> move(List<State> current, char input) {
-        List<State> moveViaInput = new LinkedList<>();
-        for(State state : current){
-            moveViaInput.addAll(state.getStatesTransitionViaInput(input));
+    private static List<State> toStates(BitSet set, State[] states) {
+        List<State> list = new ArrayList<>(set.cardinality());
+        for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+            list.add(states[id]);
         }
-        return moveViaInput;
+        return list;
     }
 }
@@ -1,7 +1,10 @@
 package com.kaba.algorithms;
 
+import com.kaba.helper.CharClass;
+import com.kaba.helper.CompilationContext;
 import com.kaba.helper.Fragment;
 import com.kaba.helper.Regex;
+import com.kaba.helper.RegexToken;
 import com.kaba.helper.State;
 
 import java.util.*;
@@ -12,7 +15,7 @@ import java.util.*;
 public class Thompson {
     /**
      *  Return an equivalent NFA fragment of a postfix expression
-     *  Inputs: Queue that contains postfix expression
+     *  Inputs: Queue that contains postfix expression (see Regex.infixToPostfix)
      *  Output: NFA fragment
      *  Algorithm:
      *  Read a token.
@@ -32,37 +35,63 @@ public class Thompson {
      *
      *  Exit
      */
-    public static Fragment postfixToNFA(Queue<Character> queue) throws EmptyStackException {
+    public static Fragment postfixToNFA(Queue<RegexToken> queue) throws EmptyStackException {
+        return postfixToNFA(queue, new CompilationContext());
+    }
+
+    /**
+     * Same as postfixToNFA(Queue<RegexToken> queue) but builds the NFA in context: the ids of its states are handed out
+     * by context and the input alphabet and input symbols of the expression are recorded in context
+     */
+    public static Fragment postfixToNFA(Queue<RegexToken> queue, CompilationContext context) throws EmptyStackException {
         Stack<Fragment> workingContainer = new Stack<>();
+        BitSet inputAlphabet = new BitSet();
         while(!queue.isEmpty()) {
-            char token = queue.remove();
-            if(Regex.isOperator(token)){
+            RegexToken regexToken = queue.remove();
+            if(regexToken.isOperator()){
+                char token = regexToken.getOperator();
                 Fragment result;
                 if(Regex.isUnary(token)){
                     Fragment operand = workingContainer.pop();
-                    result = performAppropriateOperation(token, operand);
+                    result = performAppropriateOperation(token, operand, context);
                 } else {
                     Fragment secondOperand = workingContainer.pop();
                     Fragment firstOperand = workingContainer.pop();
-                    result = performAppropriateOperation(token, firstOperand, secondOperand);
+                    result = performAppropriateOperation(token, firstOperand, secondOperand, context);
                 }
                 workingContainer.push(result);
             } else {
-                workingContainer.push(basic(token));
+                char[] ranges = regexToken.getSymbols().getRanges();
+                for (int i = 0; i < ranges.length; i += 2) {
+                    inputAlphabet.set(ranges[i], ranges[i + 1] + 1);
+                }
+                workingContainer.push(basic(regexToken.getSymbols(), context));
             }
         }
-        State.resetLabelCount();
+        context.setInputSymbol(generateInputSymbol(inputAlphabet));
         return workingContainer.pop();
     }
+
+    /**
+     * Return the input alphabet: every character of every input symbol of the expression, in ascending order
+     */
+    private static char[] generateInputSymbol(BitSet inputAlphabet) {
+        char[] alphabets = new char[inputAlphabet.cardinality()];
+        int i = 0;
+        for (int symbol = inputAlphabet.nextSetBit(0); symbol >= 0; symbol = inputAlphabet.nextSetBit(symbol + 1)) {
+            alphabets[i++] = (char) symbol;
+        }
+        return alphabets;
+    }
     /**
      * Takes a unary character operator and performs the operation on the fragment operand
      */
-    private static Fragment performAppropriateOperation(char token, Fragment operand) {
+    private static Fragment performAppropriateOperation(char token, Fragment operand, CompilationContext context) {
         switch (token) {
             case '*':
-                return zeroOrMore(operand);
+                return zeroOrMore(operand, context);
             case '+':
-                return oneOrMore(operand);
+                return oneOrMore(operand, context);
             case '?':
                 return oneOrNothing(operand);
             default:
@@ -72,10 +101,10 @@ public class Thompson {
     /**
      * Takes a binary character operator and performs the operation on the fragment operands: firstOperand and secondOperand
      */
-    private static Fragment performAppropriateOperation(char token, Fragment firstOperand, Fragment secondOperand) {
+    private static Fragment performAppropriateOperation(char token, Fragment firstOperand, Fragment secondOperand, CompilationContext context) {
         switch (token) {
             case '|':
-                return alternate(firstOperand, secondOperand);
+                return alternate(firstOperand, secondOperand, context);
             case '.':
                 return concatenate(firstOperand, secondOperand);
             default:
@@ -84,7 +113,7 @@ public class Thompson {
     }
 
     /**
-     * Start a building block //Remove ε transition to final for buildingBlock
+     * Start an empty building block
      * Make the start state of the building block transition via ε to the operand
      * Make a transition from 'final' of operand to 'start' of operand
      * Set the label of start states of the operand
@@ -93,9 +122,8 @@ public class Thompson {
      * Set the label of final states of the operand
      * Return buildingBlock
      */
-    private static Fragment oneOrMore(Fragment operand) {
-        Fragment buildingBlock = new Fragment('\u03B5');
-        buildingBlock.getStartState().removeAll();
+    private static Fragment oneOrMore(Fragment operand, CompilationContext context) {
+        Fragment buildingBlock = new Fragment(context);
 
         operand.transitionFromFinalToStart();
         buildingBlock.epsilonTransitionToFragmentViaStart(operand);
@@ -113,8 +141,8 @@ public class Thompson {
      * Set the label of final states of the operand
      * Return buildingBlock
      */
-    private static Fragment zeroOrMore(Fragment operand) {
-        Fragment buildingBlock = new Fragment('\u03B5');
+    private static Fragment zeroOrMore(Fragment operand, CompilationContext context) {
+        Fragment buildingBlock = new Fragment(State.EPSILON, context);
 
         operand.transitionFromFinalToStart();
         buildingBlock.epsilonTransitionToFragmentViaStart(operand);
@@ -123,13 +151,13 @@ public class Thompson {
         return buildingBlock;
         /*
         Initial zeroOrMore: Find out problem- Causes StackOverFlow Exception (apt ain't it? :-) )
-        State newStart = new State('S', new HashMap<>());
-        State newFinal = new State('F', new HashMap<>());
+        State newStart = new State("S", new HashMap<>());
+        State newFinal = new State("F", new HashMap<>());
 
         //Set up new start
         List<State> stateList = new LinkedList<>(Arrays.asList(operand.getStartState(), newFinal));
         HashMap<Character, List<State>> transitions = new HashMap<>();
-        transitions.put('\u03B5', stateList);
+        transitions.put(State.EPSILON, stateList);
         newStart.updateTransitions(transitions);
 
         //Set up pseudo-last
@@ -164,9 +192,8 @@ public class Thompson {
      * Set the label of final states of the two fragments
      * Return buildingBlock
      */
-    private static Fragment alternate(Fragment first, Fragment second) {
-        Fragment buildingBlock = new Fragment('\u03B5');
-        buildingBlock.getStartState().removeAll();
+    private static Fragment alternate(Fragment first, Fragment second, CompilationContext context) {
+        Fragment buildingBlock = new Fragment(context);
 
         buildingBlock.epsilonTransitionToFragmentViaStart(first);
         buildingBlock.epsilonTransitionToFragmentViaStart(second);
@@ -189,9 +216,9 @@ public class Thompson {
     }
 
     /**
-     * Returns a basic fragment that contains a start and final state and a transition via input from start to final
+     * Returns a basic fragment that contains a start and final state and a transition via every input symbol from start to final
      */
-    private static Fragment basic (Character input){
-        return new Fragment(input);
+    private static Fragment basic (CharClass input, CompilationContext context){
+        return new Fragment(input, context);
     }
 }
@@ -12,6 +12,9 @@ import java.util.regex.Pattern;
  * Class that contains the algorithm to convert an expression to different variations of three address code: Created by Yusuf on 10/3/2016.
  */
 public class ThreeAddressCode {
+    private static final Pattern TERMINATED = Pattern.compile(".*;$");
+    private static final Pattern MERGED_UNARY = Pattern.compile("[+|-].*");
+
     private Stack<String> threeAddress = new Stack<>();
     private Stack<Quadruples> quadruples = new Stack<>();
     private Stack<Triples> triples = new Stack<>();
@@ -47,7 +50,7 @@ public class ThreeAddressCode {
      * Exit
      */
     public List<BinaryTree<String>> generateThreeAddressCode(String statements) throws IllegalArgumentException {
-        if(!Pattern.matches(".*;$", statements)){
+        if(!TERMINATED.matcher(statements).matches()){
             throw new IllegalArgumentException("Please enter a string terminated with ';' ");
         }
         statements = statements.replaceAll("\\s", "");
@@ -112,99 +115,114 @@ public class ThreeAddressCode {
      * Return true if token is actually a unary operation with a either a +/- and any operand
      */
     private static boolean isMergedUnary(String token) {
-        Pattern merged = Pattern.compile("[+|-].*");
-        return merged.matcher(token).matches();
+        return MERGED_UNARY.matcher(token).matches();
     }
 
     /**
      * Return three address code from a BinaryTree (com.kaba.helper.BinaryTree)
-     * Uses recursion to traverse/visit each node in the binary tree
      * Take not that internal nodes are operators and leaf nodes are operands
+     * Assignments ('=') get no label: they emit "left = right" and evaluate to ""
      */
     private String threeAddressFromBinaryTree(BinaryTree<String> binaryTree){
-        if(binaryTree == null){
-            return "";
-        }
-        else if(binaryTree.isLeafNode()){
-            return binaryTree.getElement();
-        }
-        else {
-            StringBuilder stringBuilder = new StringBuilder();
-            if(binaryTree.getElement().equals("=")){
-                threeAddress.push(stringBuilder.append(threeAddressFromBinaryTree(binaryTree.getLeft()))
-                        .append(" ")
-                        .append(binaryTree.getElement())
-                        .append(" ")
-                        .append(threeAddressFromBinaryTree(binaryTree.getRight())).toString());
+        return traverse(binaryTree, false, false, (node, label, left, right) -> {
+            if(node.getElement().equals("=")){
+                threeAddress.push(left + " " + node.getElement() + " " + right);
                 return "";
             }
-            else {
-                String label = generateLabelNumber();
-                threeAddress.push(stringBuilder.append(label)
-                        .append(" = ")
-                        .append(" ")
-                        .append(threeAddressFromBinaryTree(binaryTree.getLeft()))
-                        .append(" ")
-                        .append(binaryTree.getElement())
-                        .append(" ")
-                        .append(threeAddressFromBinaryTree(binaryTree.getRight())).toString());
-                return label;
-            }
-        }
+            threeAddress.push(label + " = " + " " + left + " " + node.getElement() + " " + right);
+            return label;
+        });
     }
 
     /**
      * Return quadruple representation from a BinaryTree (com.kaba.helper.BinaryTree)
-     * Uses recursion to traverse/visit each node in the binary tree
      * Take not that internal nodes are operators and leaf nodes are operands
+     * The right operand of a node is visited before its left operand
      */
     private String quadruplesFromBinaryTree(BinaryTree<String> binaryTree){
-        if(binaryTree == null){
-            return "";
-        }
-        else if(binaryTree.isLeafNode()){
-            return binaryTree.getElement();
-        }
-        else {
-            if(binaryTree.getElement().equals("=")){
-                String label = generateLabelNumber();
-                Quadruples current = new Quadruples(quadruplesFromBinaryTree(binaryTree.getRight()), quadruplesFromBinaryTree(binaryTree.getLeft()), binaryTree.getElement(), label);
-                quadruples.push(current);
-                return "";
-            }
-            else {
-                String label = generateLabelNumber();
-                Quadruples current = new Quadruples(quadruplesFromBinaryTree(binaryTree.getRight()), quadruplesFromBinaryTree(binaryTree.getLeft()), binaryTree.getElement(), label);
-                quadruples.push(current);
-                return label;
-            }
-        }
+        return traverse(binaryTree, true, true, (node, label, left, right) -> {
+            quadruples.push(new Quadruples(right, left, node.getElement(), label));
+            return node.getElement().equals("=") ? "" : label;
+        });
     }
 
     /**
      * Return triple representation from a BinaryTree (com.kaba.helper.BinaryTree)
-     * Uses recursion to traverse/visit each node in the binary tree
      * Take not that internal nodes are operators and leaf nodes are operands
      */
     private String triplesFromBinaryTree(BinaryTree<String> binaryTree){
-        if(binaryTree == null){
-            return "";
-        }
-        else if(binaryTree.isLeafNode()){
-            return binaryTree.getElement();
+        return traverse(binaryTree, true, false, (node, label, left, right) -> {
+            triples.push(new Triples(label, node.getElement(), left, right));
+            return node.getElement().equals("=") ? "" : label;
+        });
+    }
+
+    /**
+     * Emits the code of an internal node once both of its operands have been evaluated and returns the value of the node
+     */
+    private interface NodeVisitor {
+        String visit(BinaryTree<String> node, String label, String left, String right);
+    }
+
+    /**
+     * Internal node whose operands are being evaluated by traverse
+     */
+    private static class Frame {
+        private final BinaryTree<String> node;
+        private final String label;
+        private String firstValue;
+        private boolean firstDone;
+
+        Frame(BinaryTree<String> node, String label) {
+            this.node = node;
+            this.label = label;
         }
-        else {
-            if(binaryTree.getElement().equals("=")){
-                String label = generateLabelNumber();
-                Triples current = new Triples(label, binaryTree.getElement(), triplesFromBinaryTree(binaryTree.getLeft()), triplesFromBinaryTree(binaryTree.getRight()));
-                triples.push(current);
-                return "";
+    }
+
+    /**
+     * Evaluate binaryTree bottom up with an explicit stack instead of recursion, so the depth of the tree is only
+     * bounded by the heap: a leaf evaluates to its element, a missing operand to "" and an internal node to the value
+     * returned by visitor
+     * Labels are generated when a node is entered (pre-order), before its operands, for every internal node if
+     * labelAssignments is set and for every internal node but '=' otherwise
+     * Algorithm:
+     *  node = root
+     *  repeat
+     *      while node is an internal node do
+     *          push a frame for node (with its label) and go down to its first operand (left, or right if rightFirst)
+     *      value = value of the leaf node
+     *      while there are frames do
+     *          if the first operand of the top frame has not been evaluated then
+     *              record value as its value, node = its second operand and continue the outer loop
+     *          pop the frame and value = visitor(node, label, left value, right value)
+     *      return value
+     */
+    private String traverse(BinaryTree<String> root, boolean labelAssignments, boolean rightFirst, NodeVisitor visitor) {
+        Deque<Frame> frames = new ArrayDeque<>();
+        BinaryTree<String> node = root;
+        while (true) {
+            while (node != null && !node.isLeafNode()) {
+                String label = labelAssignments || !node.getElement().equals("=") ? generateLabelNumber() : null;
+                frames.push(new Frame(node, label));
+                node = rightFirst ? node.getRight() : node.getLeft();
+            }
+            String value = node == null ? "" : node.getElement();
+            node = null;
+            while (!frames.isEmpty()) {
+                Frame frame = frames.peek();
+                if (!frame.firstDone) {
+                    frame.firstValue = value;
+                    frame.firstDone = true;
+                    node = rightFirst ? frame.node.getLeft() : frame.node.getRight();
+                    break;
+                }
+                frames.pop();
+                String left = rightFirst ? value : frame.firstValue;
+                String right = rightFirst ? frame.firstValue : value;
+                value = visitor.visit(frame.node, frame.label, left, right);
             }
-            else {
-                String label = generateLabelNumber();
-                Triples current = new Triples(label, binaryTree.getElement(), triplesFromBinaryTree(binaryTree.getLeft()), triplesFromBinaryTree(binaryTree.getRight()));
-                triples.push(current);
-                return label;
+            if (frames.isEmpty()) {
+                return value;
             }
         }
     }
@@ -0,0 +1,262 @@
+package com.kaba.automata;
+
+import com.kaba.helper.AlphabetClasses;
+import com.kaba.helper.Fragment;
+import com.kaba.helper.State;
+
+import java.util.*;
+
+/**
+ * Compact, array based form of an NFA Fragment
+ * States are plain ints: the index of a state is its id (State.getId()) so BitSets of ids built from a Fragment and
+ * from its CompiledNFA are interchangeable. Ids of states that were dropped while the Fragment was built (e.g. the
+ * final state of the first operand of a concatenation) are left as empty rows
+ * Transitions are labelled with alphabet classes (see AlphabetClasses) instead of characters: an edge via a range of
+ * characters becomes one transition per class in the range, so [^"] costs one or two transitions instead of 65534
+ * Transitions are stored CSR style (compressed sparse rows):
+ *  the symbol transitions of state s are transitionClasses/transitionTargets[transitionOffsets[s] .. transitionOffsets[s + 1])
+ *  sorted by class, so the targets of s via a class are a contiguous run found by binary search
+ *  the ε transitions of state s are epsilonTargets[epsilonOffsets[s] .. epsilonOffsets[s + 1])
+ * The whole automaton is therefore five flat arrays regardless of the number of states
+ * A Thompson NFA has a single final state; a position automaton (see Glushkov) may accept in several states, so the
+ * accepting states are also kept as a BitSet of ids
+ */
+public class CompiledNFA {
+    private final int startState;
+    private final int finalState;
+    private final BitSet finalStates;
+    private final AlphabetClasses alphabetClasses;
+    private final int[] transitionOffsets;
+    private final int[] transitionClasses;
+    private final int[] transitionTargets;
+    private final int[] epsilonOffsets;
+    private final int[] epsilonTargets;
+
+    public CompiledNFA(int startState, int finalState, AlphabetClasses alphabetClasses, int[] transitionOffsets,
+                       int[] transitionClasses, int[] transitionTargets, int[] epsilonOffsets, int[] epsilonTargets) {
+        this(startState, finalState, singleton(finalState), alphabetClasses, transitionOffsets, transitionClasses,
+                transitionTargets, epsilonOffsets, epsilonTargets);
+    }
+
+    /**
+     * Same as the constructor above, for an NFA that accepts in every state of finalStates (which contains finalState)
+     */
+    public CompiledNFA(int startState, int finalState, BitSet finalStates, AlphabetClasses alphabetClasses,
+                       int[] transitionOffsets, int[] transitionClasses, int[] transitionTargets, int[] epsilonOffsets,
+                       int[] epsilonTargets) {
+        this.startState = startState;
+        this.finalState = finalState;
+        this.finalStates = finalStates;
+        this.alphabetClasses = alphabetClasses;
+        this.transitionOffsets = transitionOffsets;
+        this.transitionClasses = transitionClasses;
+        this.transitionTargets = transitionTargets;
+        this.epsilonOffsets = epsilonOffsets;
+        this.epsilonTargets = epsilonTargets;
+    }
+
+    /**
+     * Flatten an NFA Fragment into its compiled form, over the alphabet classes of its context (every range of the
+     * Fragment is recorded there, see Fragment)
+     * Each state is flattened in turn: its ε edges are copied, and each of its symbol edges adds a (class, target) pair
+     * for every class of the intervals its range covers. The pairs are then sorted by class and duplicates dropped
+     */
+    public static CompiledNFA compile(Fragment NFA) {
+        AlphabetClasses classes = NFA.getContext().getAlphabetClasses();
+        char[] starts = classes.getIntervalStarts();
+        int[] intervalClasses = classes.getIntervalClasses();
+        int stateCount = 0;
+        for (State state : NFA.getStates()) {
+            stateCount = Math.max(stateCount, state.getId() + 1);
+        }
+        State[] states = new State[stateCount];
+        for (State state : NFA.getStates()) {
+            states[state.getId()] = state;
+        }
+
+        int[] transitionOffsets = new int[stateCount + 1];
+        int[] transitionClasses = new int[16];
+        int[] transitionTargets = new int[16];
+        int[] epsilonOffsets = new int[stateCount + 1];
+        int[] epsilonTargets = new int[16];
+        long[] pairs = new long[16];
+        int symbolIndex = 0;
+        int epsilonIndex = 0;
+        for (int id = 0; id < stateCount; id++) {
+            transitionOffsets[id] = symbolIndex;
+            epsilonOffsets[id] = epsilonIndex;
+            if (states[id] == null) {
+                continue;
+            }
+            State state = states[id];
+            int pairCount = 0;
+            for (int edge = 0; edge < state.getEdgeCount(); edge++) {
+                int target = state.getEdgeTarget(edge).getId();
+                char first = state.getEdgeSymbol(edge);
+                if (first == State.EPSILON) {
+                    if (epsilonIndex == epsilonTargets.length) {
+                        epsilonTargets = Arrays.copyOf(epsilonTargets, 2 * epsilonIndex);
+                    }
+                    epsilonTargets[epsilonIndex++] = target;
+                    continue;
+                }
+                int i = Arrays.binarySearch(starts, first);
+                for (i = i >= 0 ? i : -i - 2; i < starts.length && starts[i] <= state.getEdgeLastSymbol(edge); i++) {
+                    if (intervalClasses[i] != AlphabetClasses.NONE) {
+                        if (pairCount == pairs.length) {
+                            pairs = Arrays.copyOf(pairs, 2 * pairCount);
+                        }
+                        pairs[pairCount++] = ((long) intervalClasses[i] << 32) | target;
+                    }
+                }
+            }
+            Arrays.sort(pairs, 0, pairCount);
+            if (symbolIndex + pairCount > transitionClasses.length) {
+                int capacity = Math.max(2 * transitionClasses.length, symbolIndex + pairCount);
+                transitionClasses = Arrays.copyOf(transitionClasses, capacity);
+                transitionTargets = Arrays.copyOf(transitionTargets, capacity);
+            }
+            for (int p = 0; p < pairCount; p++) {
+                if (p == 0 || pairs[p] != pairs[p - 1]) {
+                    transitionClasses[symbolIndex] = (int) (pairs[p] >>> 32);
+                    transitionTargets[symbolIndex++] = (int) pairs[p];
+                }
+            }
+        }
+        transitionOffsets[stateCount] = symbolIndex;
+        epsilonOffsets[stateCount] = epsilonIndex;
+
+        BitSet finalStates = new BitSet(stateCount);
+        for (State state : NFA.getAcceptingStates()) {
+            finalStates.set(state.getId());
+        }
+        return new CompiledNFA(NFA.getStartState().getId(), NFA.getFinalState().getId(), finalStates, classes,
+                transitionOffsets, Arrays.copyOf(transitionClasses, symbolIndex),
+                Arrays.copyOf(transitionTargets, symbolIndex), epsilonOffsets, Arrays.copyOf(epsilonTargets, epsilonIndex));
+    }
+
+    private static BitSet singleton(int state) {
+        BitSet set = new BitSet(state + 1);
+        set.set(state);
+        return set;
+    }
+
+    /**
+     * Number of rows (state ids) in the automaton
+     */
+    public int getStateCount() {
+        return transitionOffsets.length - 1;
+    }
+
+    public int getStartState() {
+        return startState;
+    }
+
+    public int getFinalState() {
+        return finalState;
+    }
+
+    /**
+     * Returns the ids of the accepting states: the BitSet is shared so callers must not modify it
+     */
+    public BitSet getFinalStates() {
+        return finalStates;
+    }
+
+    public boolean isFinal(int state) {
+        return finalStates.get(state);
+    }
+
+    /**
+     * Return true if the set of states contains an accepting state
+     */
+    public boolean containsFinal(BitSet states) {
+        return states.intersects(finalStates);
+    }
+
+    /**
+     * Returns the alphabet classes transitions are labelled with
+     */
+    public AlphabetClasses getAlphabetClasses() {
+        return alphabetClasses;
+    }
+
+    /**
+     * Return the class of input, or AlphabetClasses.NONE if no transition is via input
+     */
+    public int classOf(char input) {
+        return alphabetClasses.classOf(input);
+    }
+
+    /**
+     * Index of the first symbol transition of state via the class inputClass, or the end of the row of state if there is
+     * none. The targets of state via inputClass are transitionTarget(i) for i from this index while
+     * transitionClass(i) == inputClass
+     */
+    public int firstTransition(int state, int inputClass) {
+        int low = transitionOffsets[state];
+        int high = transitionOffsets[state + 1];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (transitionClasses[middle] < inputClass) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * End (exclusive) of the symbol transitions of state
+     */
+    public int transitionEnd(int state) {
+        return transitionOffsets[state + 1];
+    }
+
+    /**
+     * Start of the symbol transitions of state
+     */
+    public int transitionStart(int state) {
+        return transitionOffsets[state];
+    }
+
+    public int transitionClass(int index) {
+        return transitionClasses[index];
+    }
+
+    public int transitionTarget(int index) {
+        return transitionTargets[index];
+    }
+
+    /**
+     * Start of the ε transitions of state
+     */
+    public int epsilonStart(int state) {
+        return epsilonOffsets[state];
+    }
+
+    /**
+     * End (exclusive) of the ε transitions of state
+     */
+    public int epsilonEnd(int state) {
+        return epsilonOffsets[state + 1];
+    }
+
+    public int epsilonTarget(int index) {
+        return epsilonTargets[index];
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledNFA: " +
+                "\nstates: " + getStateCount() +
+                "\nsymbol transitions: " + transitionClasses.length +
+                "\nε transitions: " + epsilonTargets.length +
+                "\nalphabet: " + alphabetClasses +
+                "\nstartState: " + startState +
+                "\nfinalState: " + finalState +
+                "\nfinalStates: " + finalStates +
+                "\nEnd Of CompiledNFA";
+    }
+}
@@ -0,0 +1,35 @@
+package com.kaba.automata;
+
+import com.kaba.helper.Fragment;
+
+/**
+ * Result of compiling one regular expression: the regex text with its NFA (Thompson) and DFA (SubsetConstruction)
+ */
+public class CompiledRegex {
+    private final String regex;
+    private final Fragment NFA;
+    private final DFA dfa;
+
+    public CompiledRegex(String regex, Fragment NFA, DFA dfa) {
+        this.regex = regex;
+        this.NFA = NFA;
+        this.dfa = dfa;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    public Fragment getNFA() {
+        return NFA;
+    }
+
+    public DFA getDFA() {
+        return dfa;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledRegex {regex: " + regex + ", NFA states: " + NFA.getStates().size() + ", DFA states: " + dfa.getStates().size() + "}";
+    }
+}
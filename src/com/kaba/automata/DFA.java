@@ -1,5 +1,6 @@
 package com.kaba.automata;
 
+import com.kaba.helper.AlphabetClasses;
 import com.kaba.helper.DFAState;
 import com.kaba.helper.State;
 
@@ -7,16 +8,25 @@ import java.util.*;
 
 /**
  * Deterministic Finite Automaton: Created by Kaba Yusuf on 9/30/2016.
+ * When the DFA has AlphabetClasses (as built by SubsetConstruction), its transitions are only recorded for the
+ * representative of each class: the transition via any other character is that of the representative of its class
  */
 public class DFA {
     private Set<DFAState> states;
     private DFAState startState;
     private List<DFAState> finalStates;
+    private Map<BitSet, DFAState> index;
+    private Map<Integer, DFAState> ids;
+    private AlphabetClasses alphabetClasses;
 
     public DFA(DFAState startState) {
         this.startState = startState;
         states = new HashSet<>(Collections.singletonList(startState));
         finalStates = new LinkedList<>();
+        index = new HashMap<>();
+        index.put(startState.getKey(), startState);
+        ids = new HashMap<>();
+        ids.put(startState.getId(), startState);
     }
 
     public List<DFAState> getFinalStates() {
@@ -31,9 +41,31 @@ public class DFA {
         return startState;
     }
 
-    public DFAState returnStateFromCharacter(char label) {
+    /**
+     * Returns the alphabet classes the transitions are recorded for, or null if they are recorded for every character
+     */
+    public AlphabetClasses getAlphabetClasses() {
+        return alphabetClasses;
+    }
+
+    public void setAlphabetClasses(AlphabetClasses alphabetClasses) {
+        this.alphabetClasses = alphabetClasses;
+    }
+
+    /**
+     * Return the DFAState whose id is id or return null
+     * Constant time lookup used to follow transitions, which are recorded as target ids
+     */
+    public DFAState returnStateFromId(int id) {
+        return ids.get(id);
+    }
+
+    /**
+     * Return the DFAState whose label is label or return null
+     */
+    public DFAState returnStateFromLabel(String label) {
         for(DFAState state : states) {
-            if(state.getLabel() == label){
+            if(state.getLabel().equals(label)){
                 return state;
             }
         }
@@ -42,25 +74,20 @@ public class DFA {
 
     /**
      * Returns true of the DFA already contains this list of states as a state.
+     * The order of the list is not significant: states are compared by their canonical key (see DFAState.getKey)
      */
     public boolean exists(List<State> state){
-        boolean exists = false;
-        for (DFAState entry : states) {
-            if(entry.getComponentStates().equals(state)){
-                exists = true;
-                break;
-            }
-        }
-        return exists;
+        return index.containsKey(DFAState.keyOf(state));
     }
 
     /**
-     * Adds a DFAState as a state to the states Set
+     * Adds a DFAState as a state to the states Set and indexes it by key and by id
+     * If a state made of the same NFA states was added before, the key keeps returning that state
      */
     public void add(DFAState state){
-        if(!exists(state.getComponentStates())) {
-            states.add(state);
-        }
+        index.putIfAbsent(state.getKey(), state);
+        ids.put(state.getId(), state);
+        states.add(state);
     }
 
     /**
@@ -68,12 +95,15 @@ public class DFA {
      * Should be called when it is confirmed via boolean exists(List<State> state) that dTran exists
      */
     public DFAState getStateFromList(List<State> dTran) {
-        for(DFAState state: states){
-            if(state.getComponentStates().equals(dTran)){
-                return state;
-            }
-        }
-        return null;
+        return index.get(DFAState.keyOf(dTran));
+    }
+
+    /**
+     * Given the canonical key of a set of NFA states, return the DFAState made up of those states OR return null
+     * Constant time lookup used by SubsetConstruction
+     */
+    public DFAState getStateFromKey(BitSet key) {
+        return index.get(key);
     }
 
     @Override
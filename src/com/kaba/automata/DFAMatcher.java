@@ -0,0 +1,292 @@
+package com.kaba.automata;
+
+import com.kaba.helper.AlphabetClasses;
+import com.kaba.helper.CharIntMap;
+import com.kaba.helper.DFAState;
+
+import java.util.*;
+
+/**
+ * Table driven matcher compiled from a DFA
+ * The DFA is flattened into an int[states * columns] transition table: the next state of state s via a symbol in
+ * column c is table[s * columnCount + c]. There is one column per alphabet class of the DFA (see AlphabetClasses), and
+ * characters are mapped to columns through a lookup array indexed by char
+ * Accepting states are kept in a bitmap (one bit per state)
+ * The dead state of the DFA (the state with no component states) and characters outside the alphabet both map to
+ * DEAD (-1), which ends a scan early
+ * Once compiled, the matcher is immutable and thread safe: matches and longestMatch do not allocate, find allocates
+ * its thread lists once per call
+ */
+public class DFAMatcher {
+    public static final int DEAD = -1;
+
+    private final int startState;
+    private final int stateCount;
+    private final int columnCount;
+    private final AlphabetClasses alphabetClasses;
+    private final int[] columns;
+    private final int[] table;
+    private final long[] accepting;
+
+    /**
+     * Create a matcher with one column per character of alphabet (ascending)
+     */
+    public DFAMatcher(int startState, int stateCount, char[] alphabet, int[] table, long[] accepting) {
+        this(startState, stateCount, AlphabetClasses.identity(alphabet), table, accepting);
+    }
+
+    /**
+     * Create a matcher with one column per class of alphabetClasses
+     */
+    public DFAMatcher(int startState, int stateCount, AlphabetClasses alphabetClasses, int[] table, long[] accepting) {
+        this.startState = startState;
+        this.stateCount = stateCount;
+        this.alphabetClasses = alphabetClasses;
+        this.columnCount = alphabetClasses.getClassCount();
+        this.table = table;
+        this.accepting = accepting;
+        this.columns = alphabetClasses.toLookupTable();
+    }
+
+    /**
+     * Flatten a DFA into a DFAMatcher
+     * The start state of the DFA is numbered 0 and the remaining live states follow, the dead state is dropped
+     * Transitions are resolved from DFAState ids to state numbers once, here, rather than on every input character
+     * A DFA without alphabet classes gets one column per character it has a transition for
+     */
+    public static DFAMatcher compile(DFA dfa) {
+        Map<Integer, Integer> numbers = new HashMap<>();
+        List<DFAState> states = new ArrayList<>();
+        states.add(dfa.getStartState());
+        for (DFAState state : dfa.getStates()) {
+            if (state != dfa.getStartState()) {
+                states.add(state);
+            }
+        }
+        TreeSet<Character> symbols = new TreeSet<>();
+        int number = 0;
+        for (DFAState state : states) {
+            if (state.isDead()) {
+                numbers.put(state.getId(), DEAD);
+            } else {
+                numbers.put(state.getId(), number++);
+            }
+            if (dfa.getAlphabetClasses() == null) {
+                for (char symbol : state.getSymbols()) {
+                    symbols.add(symbol);
+                }
+            }
+        }
+
+        AlphabetClasses classes = dfa.getAlphabetClasses();
+        if (classes == null) {
+            char[] alphabet = new char[symbols.size()];
+            int column = 0;
+            for (Character symbol : symbols) {
+                alphabet[column++] = symbol;
+            }
+            classes = AlphabetClasses.identity(alphabet);
+        }
+        int columnCount = classes.getClassCount();
+
+        int[] table = new int[number * columnCount];
+        Arrays.fill(table, DEAD);
+        long[] accepting = new long[(number + 63) >>> 6];
+        for (DFAState state : states) {
+            int from = numbers.get(state.getId());
+            if (from == DEAD) {
+                continue;
+            }
+            if (dfa.getFinalStates().contains(state)) {
+                accepting[from >>> 6] |= 1L << from;
+            }
+            for (int column = 0; column < columnCount; column++) {
+                int target = state.getTransition(classes.getRepresentative(column));
+                if (target != CharIntMap.NONE) {
+                    table[from * columnCount + column] = numbers.get(target);
+                }
+            }
+        }
+        return new DFAMatcher(0, number, classes, table, accepting);
+    }
+
+    public int getStartState() {
+        return startState;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Returns the sorted alphabet: every character that has a column in the transition table
+     */
+    public char[] getAlphabet() {
+        return alphabetClasses.getAlphabet();
+    }
+
+    /**
+     * Returns the alphabet classes: the class of a character is its column in the transition table
+     */
+    public AlphabetClasses getAlphabetClasses() {
+        return alphabetClasses;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Returns the transition table: the next state of state s via the characters of class c is table[s * columnCount + c]
+     */
+    int[] getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the accepting bitmap: state s accepts if bit s % 64 of accepting[s / 64] is set
+     */
+    long[] getAccepting() {
+        return accepting;
+    }
+
+    /**
+     * Return the state reached from state via input, or DEAD
+     */
+    public int step(int state, char input) {
+        if (input >= columns.length) {
+            return DEAD;
+        }
+        int column = columns[input];
+        return column == DEAD ? DEAD : table[state * columnCount + column];
+    }
+
+    /**
+     * Return true if state is an accepting state
+     */
+    public boolean isAccepting(int state) {
+        return state != DEAD && (accepting[state >>> 6] & (1L << state)) != 0;
+    }
+
+    /**
+     * Return true if the whole of input is in the language of the DFA
+     */
+    public boolean matches(CharSequence input) {
+        int state = startState;
+        for (int i = 0, length = input.length(); i < length; i++) {
+            state = step(state, input.charAt(i));
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return isAccepting(state);
+    }
+
+    /**
+     * Return the end (exclusive) of the longest match that starts at from, or -1 if no match starts at from
+     * An empty match (when the start state accepts) ends at from
+     */
+    public int longestMatch(CharSequence input, int from) {
+        int state = startState;
+        int end = isAccepting(state) ? from : -1;
+        for (int i = from, length = input.length(); i < length; i++) {
+            state = step(state, input.charAt(i));
+            if (state == DEAD) {
+                break;
+            }
+            if (isAccepting(state)) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Return the start of the leftmost match in input at or after from, or -1 if there is none
+     * The end of that match is longestMatch(input, start)
+     * This is a single pass over input, like NFASimulator.find: a thread is started in the start state at every
+     * position until a match is found, every thread carries the position at which it started, and a state reached by
+     * several threads keeps the one that started first (they have the same future). There are at most min(states,
+     * positions) threads, so a find is O(length * states) at worst instead of O(length^2) for a longestMatch per start
+     * Algorithm:
+     *  best = -1
+     *  for each position: i  from from to the end of input  do
+     *      if best = -1 and no thread is in the start state then add a thread in the start state with start i
+     *      if a thread is in an accepting state then best = min(best, its start)
+     *      drop the threads that did not start before best: they cannot lead to a match further left
+     *      if there is no thread left then stop
+     *      move every thread via input[i], dropping the dead ones and the later of two threads in the same state
+     *  end
+     */
+    public int find(CharSequence input, int from) {
+        int length = input.length();
+        if (from > length) {
+            return -1;
+        }
+        int capacity = (int) Math.min(stateCount, (long) length - from + 1);
+        int[] states = new int[capacity];
+        int[] starts = new int[capacity];
+        int[] nextStates = new int[capacity];
+        int[] nextStarts = new int[capacity];
+        int[] marks = new int[stateCount];
+        int size = 0;
+        int best = -1;
+        for (int i = from; ; i++) {
+            int mark = i - from + 1;
+            if (best < 0 && marks[startState] != mark) {
+                marks[startState] = mark;
+                states[size] = startState;
+                starts[size++] = i;
+            }
+            for (int t = 0; t < size; t++) {
+                if (isAccepting(states[t]) && (best < 0 || starts[t] < best)) {
+                    best = starts[t];
+                }
+            }
+            if (best >= 0) {
+                // threads are in increasing order of start: the ones that started before best come first
+                int kept = 0;
+                while (kept < size && starts[kept] < best) {
+                    kept++;
+                }
+                size = kept;
+            }
+            if (size == 0 || i == length) {
+                return best;
+            }
+            char symbol = input.charAt(i);
+            int nextSize = 0;
+            for (int t = 0; t < size; t++) {
+                int next = step(states[t], symbol);
+                if (next != DEAD && marks[next] != mark + 1) {
+                    marks[next] = mark + 1;
+                    nextStates[nextSize] = next;
+                    nextStarts[nextSize++] = starts[t];
+                }
+            }
+            int[] swap = states;
+            states = nextStates;
+            nextStates = swap;
+            swap = starts;
+            starts = nextStarts;
+            nextStarts = swap;
+            size = nextSize;
+        }
+    }
+
+    /**
+     * Return true if any substring of input is in the language of the DFA
+     */
+    public boolean find(CharSequence input) {
+        return find(input, 0) >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "DFAMatcher: " +
+                "\nstates: " + stateCount +
+                "\nalphabet: " + alphabetClasses +
+                "\nstartState: " + startState +
+                "\nEnd Of DFAMatcher";
+    }
+}
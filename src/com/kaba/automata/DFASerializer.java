@@ -0,0 +1,236 @@
+package com.kaba.automata;
+
+import com.kaba.helper.AlphabetClasses;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Versioned binary format for compiled DFAs (DFAMatcher), so that precompiled automata can be loaded at start up
+ * instead of being rebuilt through Regex => Thompson => SubsetConstruction
+ * A file holds any number of named automata (e.g. keyed by their regex). All numbers are big endian:
+ *  header:     magic 'KDFA' (int), version (short), number of automata (int)
+ *  automaton:  name (int length + UTF-8 bytes), start state (int), number of states (int), number of columns (int),
+ *              width of a table entry in bytes (byte: 1, 2 or 4), alphabet classes (int number of intervals + start
+ *              char and class int of each interval, see AlphabetClasses),
+ *              transition table (states * columns entries: next state + 1, so DEAD is 0),
+ *              accepting bitmap (longs)
+ * Table entries are only as wide as the number of states needs, so the table of a DFA with fewer than 255 states takes
+ * one byte per transition. Files are written through a FileChannel and read back from a read only memory mapping
+ */
+public class DFASerializer {
+    public static final int MAGIC = 0x4B444641;
+    public static final short VERSION = 1;
+
+    /**
+     * Write dfa to file as the only automaton, named ""
+     */
+    public static void write(DFA dfa, Path file) throws IOException {
+        write(Collections.singletonMap("", DFAMatcher.compile(dfa)), file);
+    }
+
+    /**
+     * Write every named automaton of matchers to file, replacing its content
+     */
+    public static void write(Map<String, DFAMatcher> matchers, Path file) throws IOException {
+        int size = 4 + 2 + 4;
+        Map<String, byte[]> names = new LinkedHashMap<>();
+        for (Map.Entry<String, DFAMatcher> entry : matchers.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            names.put(entry.getKey(), name);
+            size += 4 + name.length + recordSize(entry.getValue());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putShort(VERSION).putInt(matchers.size());
+        for (Map.Entry<String, DFAMatcher> entry : matchers.entrySet()) {
+            byte[] name = names.get(entry.getKey());
+            buffer.putInt(name.length).put(name);
+            writeRecord(entry.getValue(), buffer);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Read the first automaton of file
+     * Throws IOException if file is not a DFA file of a supported version or holds no automaton
+     */
+    public static DFAMatcher read(Path file) throws IOException {
+        Map<String, DFAMatcher> matchers = readAll(file);
+        if (matchers.isEmpty()) {
+            throw new IOException("No DFA in " + file);
+        }
+        return matchers.values().iterator().next();
+    }
+
+    /**
+     * Read every automaton of file, by name and in file order
+     * Throws IOException if file is not a DFA file of a supported version
+     */
+    public static Map<String, DFAMatcher> readAll(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return readAll(buffer);
+        }
+    }
+
+    /**
+     * Read every automaton from the remaining bytes of buffer, by name and in buffer order
+     * Throws IOException if buffer does not hold a DFA file of a supported version
+     */
+    public static Map<String, DFAMatcher> readAll(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a DFA file: bad magic number");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported DFA file version " + version + " (expected " + VERSION + ")");
+            }
+            int count = buffer.getInt();
+            Map<String, DFAMatcher> matchers = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[checkRemaining(buffer, buffer.getInt(), 1, "name")];
+                buffer.get(name);
+                matchers.put(new String(name, StandardCharsets.UTF_8), readRecord(buffer));
+            }
+            return matchers;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt DFA file: " + e, e);
+        }
+    }
+
+    /**
+     * Return count if the remaining bytes of buffer hold count items of size bytes each
+     * Throws IOException otherwise (or if count is negative), before anything is allocated for the items
+     */
+    private static int checkRemaining(ByteBuffer buffer, long count, int size, String items) throws IOException {
+        if (count < 0 || count * size > buffer.remaining()) {
+            throw new IOException("Corrupt DFA file: " + count + " entries of " + items + " for " + buffer.remaining()
+                    + " remaining bytes");
+        }
+        return (int) count;
+    }
+
+    /**
+     * Return the width in bytes of a table entry for stateCount states (entries are state + 1, DEAD is 0)
+     */
+    private static int entryWidth(int stateCount) {
+        if (stateCount < 0xFF) {
+            return 1;
+        }
+        return stateCount < 0xFFFF ? 2 : 4;
+    }
+
+    private static int recordSize(DFAMatcher matcher) {
+        int stateCount = matcher.getStateCount();
+        return 4 + 4 + 4 + 1 + 4 + 6 * matcher.getAlphabetClasses().getIntervalStarts().length +
+                entryWidth(stateCount) * stateCount * matcher.getColumnCount() + 8 * ((stateCount + 63) >>> 6);
+    }
+
+    private static void writeRecord(DFAMatcher matcher, ByteBuffer buffer) {
+        int stateCount = matcher.getStateCount();
+        int width = entryWidth(stateCount);
+        AlphabetClasses classes = matcher.getAlphabetClasses();
+        char[] starts = classes.getIntervalStarts();
+        int[] intervalClasses = classes.getIntervalClasses();
+        buffer.putInt(matcher.getStartState()).putInt(stateCount).putInt(matcher.getColumnCount()).put((byte) width);
+        buffer.putInt(starts.length);
+        for (int i = 0; i < starts.length; i++) {
+            buffer.putChar(starts[i]).putInt(intervalClasses[i]);
+        }
+        for (int next : matcher.getTable()) {
+            switch (width) {
+                case 1:
+                    buffer.put((byte) (next + 1));
+                    break;
+                case 2:
+                    buffer.putShort((short) (next + 1));
+                    break;
+                default:
+                    buffer.putInt(next + 1);
+            }
+        }
+        for (long bits : matcher.getAccepting()) {
+            buffer.putLong(bits);
+        }
+    }
+
+    /**
+     * Read one automaton, see the format above
+     * Throws IOException if the start state or a transition is not a state of the automaton, or if the buffer is too
+     * short for the tables it announces, so that a corrupt file fails here instead of while matching
+     */
+    private static DFAMatcher readRecord(ByteBuffer buffer) throws IOException {
+        int startState = buffer.getInt();
+        int stateCount = buffer.getInt();
+        int columnCount = buffer.getInt();
+        int width = buffer.get();
+        if (stateCount <= 0 || columnCount < 0) {
+            throw new IOException("Corrupt DFA file: " + stateCount + " states and " + columnCount + " columns");
+        }
+        if (startState < 0 || startState >= stateCount) {
+            throw new IOException("Corrupt DFA file: start state " + startState + " of " + stateCount + " states");
+        }
+        if (width != entryWidth(stateCount)) {
+            throw new IOException("Corrupt DFA file: table entries of " + width + " bytes for " + stateCount + " states");
+        }
+        AlphabetClasses classes = readAlphabetClasses(buffer);
+        if (classes.getClassCount() != columnCount) {
+            throw new IOException("Corrupt DFA file: " + classes.getClassCount() + " alphabet classes instead of " + columnCount);
+        }
+        int[] table = new int[checkRemaining(buffer, (long) stateCount * columnCount, width, "transition table")];
+        switch (width) {
+            case 1:
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (buffer.get() & 0xFF) - 1;
+                }
+                break;
+            case 2:
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (buffer.getShort() & 0xFFFF) - 1;
+                }
+                break;
+            default:
+                buffer.asIntBuffer().get(table);
+                buffer.position(buffer.position() + 4 * table.length);
+                for (int i = 0; i < table.length; i++) {
+                    table[i]--;
+                }
+        }
+        for (int next : table) {
+            if (next < DFAMatcher.DEAD || next >= stateCount) {
+                throw new IOException("Corrupt DFA file: transition to state " + next + " of " + stateCount + " states");
+            }
+        }
+        long[] accepting = new long[checkRemaining(buffer, (stateCount + 63) >>> 6, 8, "accepting bitmap")];
+        buffer.asLongBuffer().get(accepting);
+        buffer.position(buffer.position() + 8 * accepting.length);
+        return new DFAMatcher(startState, stateCount, classes, table, accepting);
+    }
+
+    /**
+     * Read the intervals of the alphabet classes
+     */
+    private static AlphabetClasses readAlphabetClasses(ByteBuffer buffer) throws IOException {
+        int intervals = checkRemaining(buffer, buffer.getInt(), 6, "alphabet classes");
+        char[] starts = new char[intervals];
+        int[] classes = new int[intervals];
+        for (int i = 0; i < intervals; i++) {
+            starts[i] = buffer.getChar();
+            classes[i] = buffer.getInt();
+        }
+        return AlphabetClasses.ofIntervals(starts, classes);
+    }
+}
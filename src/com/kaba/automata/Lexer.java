@@ -0,0 +1,132 @@
+package com.kaba.automata;
+
+import com.kaba.helper.AlphabetClasses;
+import com.kaba.helper.Token;
+
+import java.util.*;
+
+/**
+ * Table driven maximal munch tokenizer generated from a list of token rules (see LexerGenerator)
+ * Like DFAMatcher, the DFA is an int[states * columns] transition table with one column per alphabet class and
+ * characters mapped to columns through a lookup array, but instead of a single accepting bitmap every state carries
+ * the index of the rule it accepts (or NO_RULE): the highest priority rule among the NFA final states the DFA state
+ * contains
+ * Each token is found by one scan of the DFA for all rules at once: the scan runs until the DFA dies and the token is
+ * the longest accepted lexeme seen on the way (maximal munch), tagged with the rule of the state that accepted it
+ * Once generated, the lexer is immutable and thread safe
+ */
+public class Lexer {
+    public static final int DEAD = -1;
+    public static final int NO_RULE = -1;
+
+    private final String[] tokenNames;
+    private final int columnCount;
+    private final AlphabetClasses alphabetClasses;
+    private final int[] columns;
+    private final int[] table;
+    private final int[] acceptingRules;
+
+    public Lexer(String[] tokenNames, AlphabetClasses alphabetClasses, int[] table, int[] acceptingRules) {
+        this.tokenNames = tokenNames;
+        this.alphabetClasses = alphabetClasses;
+        this.columnCount = alphabetClasses.getClassCount();
+        this.table = table;
+        this.acceptingRules = acceptingRules;
+        this.columns = alphabetClasses.toLookupTable();
+    }
+
+    /**
+     * The start state is always state 0
+     */
+    public int getStartState() {
+        return 0;
+    }
+
+    public int getStateCount() {
+        return acceptingRules.length;
+    }
+
+    /**
+     * Returns the names of the rules, in priority order
+     */
+    public String[] getTokenNames() {
+        return tokenNames;
+    }
+
+    /**
+     * Return the state reached from state via input, or DEAD
+     */
+    public int step(int state, char input) {
+        if (input >= columns.length) {
+            return DEAD;
+        }
+        int column = columns[input];
+        return column == DEAD ? DEAD : table[state * columnCount + column];
+    }
+
+    /**
+     * Return the index of the rule accepted in state, or NO_RULE
+     */
+    public int acceptingRule(int state) {
+        return state == DEAD ? NO_RULE : acceptingRules[state];
+    }
+
+    /**
+     * Return the token that starts at from, or null if no rule matches a non empty lexeme at from
+     * Algorithm (maximal munch):
+     *  state = start state, last = none
+     *  for each input character from from: a  do
+     *      state = DTran[state, a]
+     *      if state is DEAD then stop
+     *      if state accepts a rule then last = (rule of state, position after a)
+     *  end
+     *  return last
+     */
+    public Token nextToken(CharSequence input, int from) {
+        int state = 0;
+        int rule = NO_RULE;
+        int end = from;
+        for (int i = from, length = input.length(); i < length; i++) {
+            state = step(state, input.charAt(i));
+            if (state == DEAD) {
+                break;
+            }
+            if (acceptingRules[state] != NO_RULE) {
+                rule = acceptingRules[state];
+                end = i + 1;
+            }
+        }
+        if (rule == NO_RULE) {
+            return null;
+        }
+        return new Token(tokenNames[rule], rule, from, end, input.subSequence(from, end).toString());
+    }
+
+    /**
+     * Split the whole of input into tokens
+     * Throws IllegalArgumentException if no rule matches at some position of input
+     */
+    public List<Token> tokenize(CharSequence input) throws IllegalArgumentException {
+        List<Token> tokens = new ArrayList<>();
+        int position = 0;
+        while (position < input.length()) {
+            Token token = nextToken(input, position);
+            if (token == null) {
+                throw new IllegalArgumentException("No token rule matches the input at position " + position + ": '" +
+                        input.charAt(position) + "'");
+            }
+            tokens.add(token);
+            position = token.getEnd();
+        }
+        return tokens;
+    }
+
+    @Override
+    public String toString() {
+        return "Lexer: " +
+                "\nrules: " + Arrays.toString(tokenNames) +
+                "\nstates: " + acceptingRules.length +
+                "\nalphabet: " + alphabetClasses +
+                "\nEnd Of Lexer";
+    }
+}
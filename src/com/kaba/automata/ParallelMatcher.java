@@ -0,0 +1,175 @@
+package com.kaba.automata;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel matcher for huge inputs, based on the composition of transition functions
+ * The effect of a chunk of input on a DFA is the function f: state => state reached after reading the chunk from state
+ * (DEAD stays DEAD). The function of a chunk does not depend on the chunks before it, so the functions of all chunks
+ * are computed in parallel on a ForkJoinPool and then composed in input order: the state reached after the whole input
+ * is f_k(...f_2(f_1(start state))). Composition is associative, so it is done as the chunk tasks join
+ * A chunk function is computed by running the DFA from every state at once: runs that reach the same state merge and
+ * runs that die are dropped, so after a few characters only a handful of runs are left and the cost per character
+ * is close to that of a single scan
+ * The matcher is immutable and thread safe as long as the input is not modified while it is being matched
+ */
+public class ParallelMatcher {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 18;
+
+    private final DFAMatcher matcher;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    public ParallelMatcher(DFAMatcher matcher) {
+        this(matcher, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelMatcher(DFAMatcher matcher, ForkJoinPool pool, int chunkSize) {
+        this.matcher = matcher;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Return true if the whole of input is in the language of the DFA
+     * Inputs shorter than two chunks are matched by a single scan on the calling thread
+     */
+    public boolean matches(CharSequence input) {
+        return matcher.isAccepting(run(input));
+    }
+
+    /**
+     * Return the state reached from the start state after reading the whole of input, or DEAD
+     */
+    public int run(CharSequence input) {
+        int length = input.length();
+        if (length < 2 * chunkSize) {
+            int state = matcher.getStartState();
+            for (int i = 0; i < length && state != DFAMatcher.DEAD; i++) {
+                state = matcher.step(state, input.charAt(i));
+            }
+            return state;
+        }
+        int[] function = pool.invoke(new ChunkTask(input, 0, length));
+        return function[matcher.getStartState()];
+    }
+
+    /**
+     * Return the function of input[from .. to): result[s] is the state reached from state s, or DEAD
+     * Algorithm:
+     *  runs = every state, each start state s points to the run that started from it
+     *  for each input character: a  do
+     *      step every run via a, drop the runs that die and merge the runs that reach the same state
+     *      if runs were dropped or merged then repoint every start state to the run it now belongs to
+     *      if there are no runs left then stop
+     *      if a single run is left then finish the chunk with a plain scan of that run
+     *  end
+     */
+    int[] chunkFunction(CharSequence input, int from, int to) {
+        int stateCount = matcher.getStateCount();
+        int[] runOf = new int[stateCount];
+        int[] runs = new int[stateCount];
+        int[] remap = new int[stateCount];
+        int[] seen = new int[stateCount];
+        int[] merged = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            runOf[s] = s;
+            runs[s] = s;
+        }
+        int count = stateCount;
+        for (int i = from, generation = 1; i < to && count > 0; i++, generation++) {
+            char symbol = input.charAt(i);
+            int newCount = 0;
+            for (int r = 0; r < count; r++) {
+                int next = matcher.step(runs[r], symbol);
+                if (next == DFAMatcher.DEAD) {
+                    remap[r] = DFAMatcher.DEAD;
+                } else if (seen[next] == generation) {
+                    remap[r] = merged[next];
+                } else {
+                    seen[next] = generation;
+                    merged[next] = newCount;
+                    remap[r] = newCount;
+                    runs[newCount++] = next;
+                }
+            }
+            if (newCount != count) {
+                for (int s = 0; s < stateCount; s++) {
+                    if (runOf[s] != DFAMatcher.DEAD) {
+                        runOf[s] = remap[runOf[s]];
+                    }
+                }
+            }
+            count = newCount;
+            if (count == 1) {
+                int state = runs[0];
+                for (i++; i < to && state != DFAMatcher.DEAD; i++) {
+                    state = matcher.step(state, input.charAt(i));
+                }
+                if (state == DFAMatcher.DEAD) {
+                    for (int s = 0; s < stateCount; s++) {
+                        runOf[s] = DFAMatcher.DEAD;
+                    }
+                }
+                runs[0] = state;
+                break;
+            }
+        }
+        int[] function = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            function[s] = runOf[s] == DFAMatcher.DEAD ? DFAMatcher.DEAD : runs[runOf[s]];
+        }
+        return function;
+    }
+
+    /**
+     * Return the function of reading first then second: result[s] = second[first[s]]
+     */
+    static int[] compose(int[] first, int[] second) {
+        int[] function = new int[first.length];
+        for (int s = 0; s < first.length; s++) {
+            function[s] = first[s] == DFAMatcher.DEAD ? DFAMatcher.DEAD : second[first[s]];
+        }
+        return function;
+    }
+
+    public DFAMatcher getMatcher() {
+        return matcher;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Computes the function of input[from .. to): ranges longer than a chunk are split in two halves whose functions
+     * are computed in parallel and composed
+     */
+    private class ChunkTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence input;
+        private final int from;
+        private final int to;
+
+        ChunkTask(CharSequence input, int from, int to) {
+            this.input = input;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= chunkSize) {
+                return chunkFunction(input, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(input, from, middle);
+            ChunkTask right = new ChunkTask(input, middle, to);
+            left.fork();
+            int[] second = right.compute();
+            return compose(left.join(), second);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.kaba.automata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Streaming tokenizer: runs a Lexer over bytes read from a ReadableByteChannel, a (memory mapped) ByteBuffer or a whole
+ * FileChannel, without ever holding the input in a String
+ * Bytes are decoded (UTF-8 by default, malformed bytes become U+FFFD) into a char window that only holds the input from
+ * the start of the current token on. The DFA of the lexer is stepped once per char as the window fills, and when it
+ * dies the longest accepted lexeme is handed to the TokenHandler (maximal munch, see Lexer.nextToken). When the window
+ * fills up, the chars before the current token are dropped, so a token that spans two reads (or two mapped regions) is
+ * simply completed by the next refill; the window only grows when a single token (plus the look ahead after it) does
+ * not fit in it
+ * Positions given to the handler are absolute char offsets in the input (equal to byte offsets for single byte
+ * charsets such as ISO-8859-1) and are longs, so inputs of several gigabytes can be scanned
+ * A StreamScanner keeps its window between scans, so it is not thread safe: it must only be used by one thread at a time
+ */
+public class StreamScanner {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final long MAP_SIZE = 1L << 28;
+
+    /**
+     * Receives the tokens of a scan in input order
+     */
+    public interface TokenHandler {
+        /**
+         * Called for every token: rule is the index of the rule that matched (see Lexer.getTokenNames) and the lexeme
+         * spans input[start .. end). lexeme is a view of the scanner window: it is only valid during the call
+         */
+        void token(int rule, long start, long end, CharSequence lexeme);
+    }
+
+    private final Lexer lexer;
+    private final Charset charset;
+    private final int bufferSize;
+    private CharsetDecoder decoder;
+
+    private char[] window;
+    private int limit;
+    private int tokenStart;
+    private int position;
+    private long base;
+    private int state;
+    private int lastRule;
+    private int lastEnd;
+    private long tokenCount;
+
+    public StreamScanner(Lexer lexer) {
+        this(lexer, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamScanner(Lexer lexer, Charset charset, int bufferSize) {
+        this.lexer = lexer;
+        this.charset = charset;
+        this.bufferSize = bufferSize;
+        window = new char[bufferSize];
+    }
+
+    /**
+     * Tokenize everything that can be read from channel until end of stream. Return the number of tokens
+     * Throws IllegalArgumentException if no rule matches at some position of the input
+     */
+    public long scan(ReadableByteChannel channel, TokenHandler handler) throws IOException, IllegalArgumentException {
+        reset();
+        //Large enough for the longest encoded character, or a split character would fill it and stall the reads
+        ByteBuffer bytes = ByteBuffer.allocateDirect(Math.max(bufferSize, 16));
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            endOfInput = channel.read(bytes) < 0;
+            bytes.flip();
+            decode(bytes, endOfInput, handler);
+            bytes.compact();
+        }
+        finish(handler);
+        return tokenCount;
+    }
+
+    /**
+     * Tokenize the remaining bytes of bytes, e.g. a MappedByteBuffer of a file. Return the number of tokens
+     * Throws IllegalArgumentException if no rule matches at some position of the input
+     */
+    public long scan(ByteBuffer bytes, TokenHandler handler) throws IllegalArgumentException {
+        reset();
+        decode(bytes, true, handler);
+        finish(handler);
+        return tokenCount;
+    }
+
+    /**
+     * Tokenize a whole file by mapping it into memory region by region (a single MappedByteBuffer is limited to 2GB)
+     * A region ends wherever MAP_SIZE falls, so the next region starts at the first byte the decoder has not consumed:
+     * a character split between two regions is decoded whole from the next one. Return the number of tokens
+     * Throws IllegalArgumentException if no rule matches at some position of the input
+     */
+    public long scan(FileChannel channel, TokenHandler handler) throws IOException, IllegalArgumentException {
+        reset();
+        long size = channel.size();
+        long offset = 0;
+        while (offset < size) {
+            long length = Math.min(MAP_SIZE, size - offset);
+            boolean endOfInput = offset + length == size;
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            decode(region, endOfInput, handler);
+            if (region.position() == 0 && !endOfInput) {
+                throw new IllegalStateException("Could not decode the input at byte " + offset);
+            }
+            offset += endOfInput ? length : region.position();
+        }
+        if (size == 0) {
+            decode(ByteBuffer.allocate(0), true, handler);
+        }
+        finish(handler);
+        return tokenCount;
+    }
+
+    private void reset() {
+        decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        limit = 0;
+        tokenStart = 0;
+        position = 0;
+        base = 0;
+        state = lexer.getStartState();
+        lastRule = Lexer.NO_RULE;
+        lastEnd = 0;
+        tokenCount = 0;
+    }
+
+    /**
+     * Decode bytes into the window and run the DFA over every new char, until bytes is exhausted (the bytes of a
+     * character split at the end of bytes are left in it, unless endOfInput)
+     */
+    private void decode(ByteBuffer bytes, boolean endOfInput, TokenHandler handler) {
+        while (true) {
+            makeRoom();
+            CharBuffer chars = CharBuffer.wrap(window, limit, window.length - limit);
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            limit = chars.position();
+            run(handler);
+            if (result.isUnderflow()) {
+                break;
+            }
+        }
+        if (endOfInput) {
+            while (true) {
+                makeRoom();
+                CharBuffer chars = CharBuffer.wrap(window, limit, window.length - limit);
+                CoderResult result = decoder.flush(chars);
+                limit = chars.position();
+                run(handler);
+                if (result.isUnderflow()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Step the DFA over window[position .. limit), emitting a token every time the DFA dies
+     */
+    private void run(TokenHandler handler) {
+        while (position < limit) {
+            state = lexer.step(state, window[position]);
+            if (state == Lexer.DEAD) {
+                emit(handler);
+                continue;
+            }
+            position++;
+            int rule = lexer.acceptingRule(state);
+            if (rule != Lexer.NO_RULE) {
+                lastRule = rule;
+                lastEnd = position;
+            }
+        }
+    }
+
+    /**
+     * At the end of the input, emit the pending token and re-scan the look ahead after it, until the window is empty
+     */
+    private void finish(TokenHandler handler) {
+        while (tokenStart < limit) {
+            emit(handler);
+            run(handler);
+        }
+    }
+
+    /**
+     * Hand the longest lexeme accepted since tokenStart to handler and restart the DFA right after it
+     */
+    private void emit(TokenHandler handler) {
+        if (lastRule == Lexer.NO_RULE) {
+            throw new IllegalArgumentException("No token rule matches the input at position " + (base + tokenStart) +
+                    ": '" + window[tokenStart] + "'");
+        }
+        handler.token(lastRule, base + tokenStart, base + lastEnd, CharBuffer.wrap(window, tokenStart, lastEnd - tokenStart));
+        tokenCount++;
+        tokenStart = lastEnd;
+        position = lastEnd;
+        state = lexer.getStartState();
+        lastRule = Lexer.NO_RULE;
+    }
+
+    /**
+     * Make room at the end of the window for at least one more character (2 chars: a surrogate pair): drop the chars
+     * before tokenStart, then double the window if the pending token still fills it
+     */
+    private void makeRoom() {
+        if (window.length - limit >= 2) {
+            return;
+        }
+        if (tokenStart > 0) {
+            System.arraycopy(window, tokenStart, window, 0, limit - tokenStart);
+            base += tokenStart;
+            limit -= tokenStart;
+            position -= tokenStart;
+            lastEnd -= tokenStart;
+            tokenStart = 0;
+        }
+        if (window.length - limit < 2) {
+            window = Arrays.copyOf(window, Math.max(window.length * 2, 2));
+        }
+    }
+
+    public Lexer getLexer() {
+        return lexer;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamScanner: " +
+                "\ncharset: " + charset +
+                "\nwindow: " + window.length +
+                "\ntokens: " + tokenCount +
+                "\nEnd Of StreamScanner";
+    }
+}
@@ -0,0 +1,233 @@
+package com.kaba.helper;
+
+import java.util.*;
+
+/**
+ * Partition of the input alphabet into equivalence classes: two characters are in the same class if every input symbol
+ * (CharClass) of the regular expression contains both or neither of them, so no transition of the NFA, and therefore
+ * of the DFA, can tell them apart. E.g. for [a-z]+x the classes are {x} and [a-wyz]
+ * Automata are built and stored over class ids instead of characters: the subset construction computes move once per
+ * class (using its representative, the smallest character of the class) and DFA tables have one column per class,
+ * so a symbol such as [^"] costs one column instead of 65534
+ * The classes are stored as sorted intervals of consecutive characters: interval i is [starts[i], starts[i + 1] - 1]
+ * (the last one ends at CharClass.MAX_SYMBOL) and belongs to class classes[i], or to NONE for characters that are not
+ * in the alphabet
+ */
+public class AlphabetClasses {
+    public static final int NONE = -1;
+
+    private final char[] starts;
+    private final int[] classes;
+    private final int classCount;
+    private final char[] representatives;
+
+    private AlphabetClasses(char[] starts, int[] classes) {
+        this.starts = starts;
+        this.classes = classes;
+        int count = 0;
+        for (int c : classes) {
+            count = Math.max(count, c + 1);
+        }
+        this.classCount = count;
+        this.representatives = new char[count];
+        boolean[] found = new boolean[count];
+        for (int i = 0; i < starts.length; i++) {
+            if (classes[i] != NONE && !found[classes[i]]) {
+                found[classes[i]] = true;
+                representatives[classes[i]] = starts[i];
+            }
+        }
+    }
+
+    /**
+     * Return the classes of the intervals starting at starts (ascending, starting at U+0000): see getIntervalStarts
+     */
+    public static AlphabetClasses ofIntervals(char[] starts, int[] classes) {
+        return new AlphabetClasses(starts, classes);
+    }
+
+    /**
+     * Return the equivalence classes of the characters of symbols
+     * Algorithm:
+     *  split [U+0000, MAX_SYMBOL] into elementary intervals at the start and after the end of every range of symbols
+     *  the signature of an interval is the list of the symbols that contain it
+     *  intervals with the same non empty signature form one class, intervals with an empty signature are NONE
+     */
+    public static AlphabetClasses of(Collection<CharClass> symbols) {
+        List<CharClass> distinct = new ArrayList<>(new LinkedHashSet<>(symbols));
+        TreeSet<Integer> boundaries = new TreeSet<>();
+        boundaries.add(0);
+        for (CharClass symbol : distinct) {
+            char[] ranges = symbol.getRanges();
+            for (int i = 0; i < ranges.length; i += 2) {
+                boundaries.add((int) ranges[i]);
+                boundaries.add(ranges[i + 1] + 1);
+            }
+        }
+        boundaries.remove(CharClass.MAX_SYMBOL + 1);
+        int[] points = new int[boundaries.size()];
+        int n = 0;
+        for (int boundary : boundaries) {
+            points[n++] = boundary;
+        }
+
+        List<List<Integer>> signatures = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            signatures.add(new ArrayList<>());
+        }
+        for (int k = 0; k < distinct.size(); k++) {
+            char[] ranges = distinct.get(k).getRanges();
+            for (int r = 0; r < ranges.length; r += 2) {
+                for (int i = Arrays.binarySearch(points, ranges[r]); i < n && points[i] <= ranges[r + 1]; i++) {
+                    signatures.get(i).add(k);
+                }
+            }
+        }
+
+        Map<List<Integer>, Integer> classIds = new HashMap<>();
+        char[] starts = new char[n];
+        int[] classes = new int[n];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            int c = NONE;
+            if (!signatures.get(i).isEmpty()) {
+                Integer id = classIds.get(signatures.get(i));
+                if (id == null) {
+                    id = classIds.size();
+                    classIds.put(signatures.get(i), id);
+                }
+                c = id;
+            }
+            if (size > 0 && classes[size - 1] == c) {
+                continue;
+            }
+            starts[size] = (char) points[i];
+            classes[size++] = c;
+        }
+        return new AlphabetClasses(Arrays.copyOf(starts, size), Arrays.copyOf(classes, size));
+    }
+
+    /**
+     * Return the classes in which every character of alphabet is a class of its own, in ascending order
+     */
+    public static AlphabetClasses identity(char[] alphabet) {
+        char[] starts = new char[2 * alphabet.length + 1];
+        int[] classes = new int[2 * alphabet.length + 1];
+        int size = 0;
+        starts[size] = 0;
+        classes[size++] = NONE;
+        for (int c = 0; c < alphabet.length; c++) {
+            char symbol = alphabet[c];
+            if (starts[size - 1] == symbol) {
+                size--;
+            }
+            starts[size] = symbol;
+            classes[size++] = c;
+            if (symbol < CharClass.MAX_SYMBOL && (c + 1 == alphabet.length || alphabet[c + 1] != symbol + 1)) {
+                starts[size] = (char) (symbol + 1);
+                classes[size++] = NONE;
+            }
+        }
+        return new AlphabetClasses(Arrays.copyOf(starts, size), Arrays.copyOf(classes, size));
+    }
+
+    /**
+     * Return the class of symbol, or NONE if symbol is not in the alphabet
+     */
+    public int classOf(char symbol) {
+        int i = Arrays.binarySearch(starts, symbol);
+        return classes[i >= 0 ? i : -i - 2];
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Return the smallest character of class c: the character used for c in transitions
+     */
+    public char getRepresentative(int c) {
+        return representatives[c];
+    }
+
+    /**
+     * Return every character of class c
+     */
+    public CharClass getSymbols(int c) {
+        char[] ranges = new char[2 * starts.length];
+        int size = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (classes[i] == c) {
+                ranges[size++] = starts[i];
+                ranges[size++] = i + 1 < starts.length ? (char) (starts[i + 1] - 1) : CharClass.MAX_SYMBOL;
+            }
+        }
+        return CharClass.ofRanges(ranges, size);
+    }
+
+    /**
+     * Return every character of the alphabet (of any class) in ascending order
+     */
+    public char[] getAlphabet() {
+        int size = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (classes[i] != NONE) {
+                size += intervalEnd(i) - starts[i] + 1;
+            }
+        }
+        char[] alphabet = new char[size];
+        size = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (classes[i] != NONE) {
+                for (int symbol = starts[i]; symbol <= intervalEnd(i); symbol++) {
+                    alphabet[size++] = (char) symbol;
+                }
+            }
+        }
+        return alphabet;
+    }
+
+    /**
+     * Return a lookup table of the class of every character up to the largest character of the alphabet: characters
+     * past the end of the table are NONE
+     */
+    public int[] toLookupTable() {
+        int last = starts.length - 1;
+        while (last >= 0 && classes[last] == NONE) {
+            last--;
+        }
+        int length = last < 0 ? 0 : intervalEnd(last) + 1;
+        int[] lookup = new int[length];
+        for (int i = 0; i <= last; i++) {
+            Arrays.fill(lookup, starts[i], intervalEnd(i) + 1, classes[i]);
+        }
+        return lookup;
+    }
+
+    /**
+     * Returns the starts of the intervals (ascending, the first one is U+0000)
+     */
+    public char[] getIntervalStarts() {
+        return starts;
+    }
+
+    /**
+     * Returns the class of each interval (NONE for characters outside the alphabet)
+     */
+    public int[] getIntervalClasses() {
+        return classes;
+    }
+
+    private int intervalEnd(int i) {
+        return i + 1 < starts.length ? starts[i + 1] - 1 : CharClass.MAX_SYMBOL;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("AlphabetClasses{");
+        for (int c = 0; c < classCount; c++) {
+            stringBuilder.append(c == 0 ? "" : ", ").append(getSymbols(c));
+        }
+        return stringBuilder.append('}').toString();
+    }
+}
@@ -8,9 +8,6 @@ import org.graphstream.graph.implementations.SingleGraph;
 import org.graphstream.ui.swingViewer.ViewPanel;
 import org.graphstream.ui.view.Viewer;
 
-import java.util.List;
-import java.util.Map;
-
 /**
  * Created by Yusuf on 3/2/2016
  * Uses the Graphstream library (http://graphstream-project.org/) to display NFAs and DFAs generated from regular expressions
@@ -18,8 +15,8 @@ import java.util.Map;
 public class AppGraph {
 
     private Graph graph = new SingleGraph("Graph Traversal");
-    private static DFA dfa;
-    private static Fragment fragment;
+    private DFA dfa;
+    private Fragment fragment;
 
     /*
     * Initialize graph with edges and nodes for a Deterministic Finite Automaton
@@ -109,9 +106,9 @@ public class AppGraph {
     * Add nodes and edges to the DFA graph
     */
     private void setGraph(DFA dfa){
-        AppGraph.dfa = dfa;
+        this.dfa = dfa;
         for(DFAState dfaState: dfa.getStates()) {
-            String currentLabel = Character.toString(dfaState.getLabel());
+            String currentLabel = dfaState.getLabel();
             boolean isStart = false;
             boolean isFinal = false;
             if(dfa.getStartState().equals(dfaState)){
@@ -123,11 +120,9 @@ public class AppGraph {
             if(graph.getNode(currentLabel) == null){
                 addNode(currentLabel, isStart, isFinal);
             }
-            for (Map.Entry<Character, List<Character>> entry : dfaState.getTransitions().entrySet()) {
-                for(Character stateNodes : entry.getValue()) {
-                    String transitionLabel = Character.toString(stateNodes);
-                    buildGraph(transitionLabel, currentLabel, entry.getKey(), true);
-                }
+            for (char symbol : dfaState.getSymbols()) {
+                String transitionLabel = dfa.returnStateFromId(dfaState.getTransition(symbol)).getLabel();
+                buildGraph(transitionLabel, currentLabel, symbol, true);
             }
         }
     }
@@ -136,25 +131,23 @@ public class AppGraph {
     * Add nodes and edges to the NFA graph
     */
     private void setGraph(Fragment fragment) {
-        AppGraph.fragment = fragment;
+        this.fragment = fragment;
         for(State state: fragment.getStates()) {
-            String currentLabel = Character.toString(state.getLabel());
+            String currentLabel = state.getLabel();
             boolean isStart = false;
             boolean isFinal = false;
             if(fragment.getStartState().equals(state)){
                 isStart = true;
             }
-            if(fragment.getFinalState().equals(state)){
+            if(fragment.isAccepting(state)){
                 isFinal = true;
             }
             if(graph.getNode(currentLabel) == null){
                 addNode(currentLabel, isStart, isFinal);
             }
-            for (Map.Entry<Character, List<State>> entry : state.getTransitions().entrySet()) {
-                for(State stateNodes : entry.getValue()) {
-                    String transitionLabel = Character.toString(stateNodes.getLabel());
-                    buildGraph(transitionLabel, currentLabel, entry.getKey(), false);
-                }
+            for (int edge = 0; edge < state.getEdgeCount(); edge++) {
+                String transitionLabel = state.getEdgeTarget(edge).getLabel();
+                buildGraph(transitionLabel, currentLabel, state.getEdgeSymbol(edge), false);
             }
         }
     }
@@ -182,7 +175,7 @@ public class AppGraph {
             boolean isStart = false;
             boolean isFinal = false;
             if(isDFA) {
-                DFAState transitionState = dfa.returnStateFromCharacter(transitionLabel.charAt(0));
+                DFAState transitionState = dfa.returnStateFromLabel(transitionLabel);
                 if (dfa.getStartState().equals(transitionState)) {
                     isStart = true;
                 }
@@ -190,11 +183,11 @@ public class AppGraph {
                     isFinal = true;
                 }
             } else {
-                State transitionState = fragment.returnStateFromCharacter(transitionLabel.charAt(0));
+                State transitionState = fragment.returnStateFromLabel(transitionLabel);
                 if (fragment.getStartState().equals(transitionState)) {
                     isStart = true;
                 }
-                if (fragment.getFinalState().equals(transitionState)) {
+                if (fragment.isAccepting(transitionState)) {
                     isFinal = true;
                 }
             }
@@ -207,10 +200,10 @@ public class AppGraph {
                 transitionNode.addAttribute("ui.class", "final");
             }
 
-            Edge edge = graph.addEdge(currentLabel+transitionLabel, (Node) graph.getNode(currentLabel), graph.getNode(transitionLabel), true);
+            Edge edge = graph.addEdge(currentLabel + " " + transitionLabel, (Node) graph.getNode(currentLabel), graph.getNode(transitionLabel), true);
             edge.setAttribute("ui.class", getClassType(key));
         } else {
-            Edge edge = graph.addEdge(currentLabel+transitionLabel, (Node) graph.getNode(currentLabel), graph.getNode(transitionLabel), true);
+            Edge edge = graph.addEdge(currentLabel + " " + transitionLabel, (Node) graph.getNode(currentLabel), graph.getNode(transitionLabel), true);
             edge.setAttribute("ui.class", getClassType(key));
         }
     }
@@ -0,0 +1,170 @@
+package com.kaba.helper;
+
+import java.util.*;
+
+/**
+ * Immutable set of characters stored as sorted, disjoint and non-adjacent ranges: [lo0, hi0, lo1, hi1, ...]
+ * A single input symbol of a regular expression (a literal, an escape or a bracketed class such as [a-z0-9_] or [^"])
+ * is a CharClass. Character U+FFFF is reserved for ε (see State.EPSILON) and is never a member
+ */
+public class CharClass {
+    public static final char MAX_SYMBOL = '\uFFFE';
+
+    private final char[] ranges;
+
+    private CharClass(char[] ranges) {
+        this.ranges = ranges;
+    }
+
+    /**
+     * Return the CharClass that contains only symbol
+     */
+    public static CharClass of(char symbol) {
+        return new CharClass(new char[]{symbol, symbol});
+    }
+
+    /**
+     * Return the CharClass of the ranges [lo0, hi0, lo1, hi1, ...]: ranges may be unsorted, overlapping or adjacent
+     */
+    public static CharClass ofRanges(char[] unsorted, int length) {
+        if (length == 0) {
+            return new CharClass(new char[0]);
+        }
+        long[] packed = new long[length / 2];
+        for (int i = 0; i < packed.length; i++) {
+            char lo = unsorted[2 * i];
+            char hi = (char) Math.min(unsorted[2 * i + 1], MAX_SYMBOL);
+            packed[i] = ((long) lo << 16) | hi;
+        }
+        Arrays.sort(packed);
+        char[] ranges = new char[packed.length * 2];
+        int size = 0;
+        for (long range : packed) {
+            char lo = (char) (range >>> 16);
+            char hi = (char) range;
+            if (lo > hi) {
+                continue;
+            }
+            if (size > 0 && lo <= ranges[size - 1] + 1) {
+                if (hi > ranges[size - 1]) {
+                    ranges[size - 1] = hi;
+                }
+            } else {
+                ranges[size++] = lo;
+                ranges[size++] = hi;
+            }
+        }
+        return new CharClass(Arrays.copyOf(ranges, size));
+    }
+
+    /**
+     * Return the complement of this CharClass over [U+0000, MAX_SYMBOL]
+     */
+    public CharClass negate() {
+        char[] complement = new char[ranges.length + 2];
+        int size = 0;
+        int next = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > next) {
+                complement[size++] = (char) next;
+                complement[size++] = (char) (ranges[i] - 1);
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if (next <= MAX_SYMBOL) {
+            complement[size++] = (char) next;
+            complement[size++] = MAX_SYMBOL;
+        }
+        return new CharClass(Arrays.copyOf(complement, size));
+    }
+
+    /**
+     * Returns the ranges of this CharClass: [lo0, hi0, lo1, hi1, ...]
+     */
+    public char[] getRanges() {
+        return ranges;
+    }
+
+    public boolean isEmpty() {
+        return ranges.length == 0;
+    }
+
+    /**
+     * Return the number of characters in this CharClass
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            size += ranges[i + 1] - ranges[i] + 1;
+        }
+        return size;
+    }
+
+    public boolean contains(char symbol) {
+        int low = 0;
+        int high = ranges.length / 2 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (symbol < ranges[2 * middle]) {
+                high = middle - 1;
+            } else if (symbol > ranges[2 * middle + 1]) {
+                low = middle + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return every character of this CharClass in ascending order
+     */
+    public char[] toCharArray() {
+        char[] symbols = new char[size()];
+        int size = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            for (int symbol = ranges[i]; symbol <= ranges[i + 1]; symbol++) {
+                symbols[size++] = (char) symbol;
+            }
+        }
+        return symbols;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof CharClass && Arrays.equals(ranges, ((CharClass) o).ranges));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges);
+    }
+
+    @Override
+    public String toString() {
+        if (ranges.length == 2 && ranges[0] == ranges[1]) {
+            return printSymbol(ranges[0]);
+        }
+        StringBuilder stringBuilder = new StringBuilder("[");
+        for (int i = 0; i < ranges.length; i += 2) {
+            stringBuilder.append(printSymbol(ranges[i]));
+            if (ranges[i + 1] != ranges[i]) {
+                stringBuilder.append('-').append(printSymbol(ranges[i + 1]));
+            }
+        }
+        return stringBuilder.append(']').toString();
+    }
+
+    /**
+     * Return a printable form of symbol: control characters and operators are escaped
+     */
+    private static String printSymbol(char symbol) {
+        if (symbol < 0x20 || symbol > 0x7E) {
+            return String.format("\\u%04X", (int) symbol);
+        }
+        if ("\\[]^-*+?|.()".indexOf(symbol) >= 0) {
+            return "\\" + symbol;
+        }
+        return Character.toString(symbol);
+    }
+}
@@ -0,0 +1,236 @@
+package com.kaba.helper;
+
+import java.util.*;
+
+/**
+ * Map from char keys to non negative int values without boxing: used for the transitions of State and DFAState
+ * The map starts sparse, as an open addressing hash table (linear probing, at most half full) of parallel char[] keys
+ * and int[] values, where NONE marks a free slot. Once it holds DENSE_MIN_SIZE keys or more and its keys are packed
+ * closely enough (their span max - min + 1 is at most DENSE_SPAN_FACTOR times their number), it switches to a dense
+ * int[] indexed by key - base (grown geometrically, like the hash table), so that e.g. the transitions of [^"] are one
+ * array lookup per character instead of a hash probe. A dense map that would grow too sparse goes back to a hash table
+ * Keys cannot be removed one by one, only all at once (clear)
+ */
+public class CharIntMap {
+    public static final int NONE = -1;
+
+    private static final int MIN_CAPACITY = 4;
+    private static final int DENSE_MIN_SIZE = 32;
+    private static final int DENSE_SPAN_FACTOR = 4;
+
+    private char[] keys;
+    private int[] values;
+    private int[] dense;
+    private int base;
+    private char min;
+    private char max;
+    private int size;
+
+    public CharIntMap() {
+        clear();
+    }
+
+    /**
+     * Return the value of key, or NONE if key is not in the map
+     */
+    public int get(char key) {
+        if (dense != null) {
+            int i = key - base;
+            return i < 0 || i >= dense.length ? NONE : dense[i];
+        }
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; values[slot] != NONE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return NONE;
+    }
+
+    public boolean containsKey(char key) {
+        return get(key) != NONE;
+    }
+
+    /**
+     * Map key to value, replacing its previous value if any
+     * Throws IllegalArgumentException if value is negative (NONE marks missing keys)
+     */
+    public void put(char key, int value) throws IllegalArgumentException {
+        if (value < 0) {
+            throw new IllegalArgumentException("CharIntMap values must not be negative: " + value);
+        }
+        if (dense != null) {
+            char newMin = key < min ? key : min;
+            char newMax = key > max ? key : max;
+            if (newMax - newMin + 1 <= DENSE_SPAN_FACTOR * (size + 1)) {
+                if (key < base || key >= base + dense.length) {
+                    growDense(newMin, newMax);
+                }
+                if (dense[key - base] == NONE) {
+                    size++;
+                }
+                dense[key - base] = value;
+                min = newMin;
+                max = newMax;
+                return;
+            }
+            toSparse();
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != NONE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size == 1) {
+            min = key;
+            max = key;
+        } else if (key < min) {
+            min = key;
+        } else if (key > max) {
+            max = key;
+        }
+        if (size >= DENSE_MIN_SIZE && max - min + 1 <= DENSE_SPAN_FACTOR * size) {
+            toDense();
+        } else if (2 * size > keys.length) {
+            rehash(2 * keys.length);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return true if the map is currently stored as a dense array (see class comment)
+     */
+    public boolean isDense() {
+        return dense != null;
+    }
+
+    /**
+     * Remove every key and go back to a small sparse table
+     */
+    public void clear() {
+        keys = new char[MIN_CAPACITY];
+        values = new int[MIN_CAPACITY];
+        Arrays.fill(values, NONE);
+        dense = null;
+        size = 0;
+    }
+
+    /**
+     * Return the keys of the map in ascending order
+     */
+    public char[] keys() {
+        char[] result = new char[size];
+        int n = 0;
+        if (dense != null) {
+            for (int i = 0; i < dense.length; i++) {
+                if (dense[i] != NONE) {
+                    result[n++] = (char) (base + i);
+                }
+            }
+            return result;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != NONE) {
+                result[n++] = keys[slot];
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static int hash(char key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash(int capacity) {
+        char[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new char[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NONE);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != NONE) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != NONE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void toDense() {
+        dense = new int[max - min + 1];
+        base = min;
+        Arrays.fill(dense, NONE);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != NONE) {
+                dense[keys[slot] - base] = values[slot];
+            }
+        }
+        keys = null;
+        values = null;
+    }
+
+    /**
+     * Reallocate the dense array so that it covers [newMin, newMax], at least doubling its length in the direction it grows
+     */
+    private void growDense(char newMin, char newMax) {
+        int length = Math.min(Math.max(newMax - newMin + 1, 2 * dense.length), Character.MAX_VALUE + 1);
+        int newBase = newMin < base ? Math.max(0, newMax + 1 - length) : newMin;
+        newBase = Math.min(newBase, Character.MAX_VALUE + 1 - length);
+        int[] grown = new int[length];
+        Arrays.fill(grown, NONE);
+        System.arraycopy(dense, min - base, grown, min - newBase, max - min + 1);
+        dense = grown;
+        base = newBase;
+    }
+
+    private void toSparse() {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * (size + 1)) {
+            capacity <<= 1;
+        }
+        keys = new char[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NONE);
+        int mask = capacity - 1;
+        for (int i = 0; i < dense.length; i++) {
+            if (dense[i] != NONE) {
+                int slot = hash((char) (base + i)) & mask;
+                while (values[slot] != NONE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = (char) (base + i);
+                values[slot] = dense[i];
+            }
+        }
+        dense = null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("{");
+        for (char key : keys()) {
+            stringBuilder.append(stringBuilder.length() == 1 ? "" : ", ").append(CharClass.of(key)).append('=').append(get(key));
+        }
+        return stringBuilder.append('}').toString();
+    }
+}
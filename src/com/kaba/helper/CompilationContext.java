@@ -0,0 +1,72 @@
+package com.kaba.helper;
+
+import java.util.*;
+
+/**
+ * State shared by the steps of a single regex compilation: Regex => Thompson (NFA) => SubsetConstruction (DFA)
+ * It hands out the ids of the States and DFAStates and holds the input alphabet of the regex and the input symbols
+ * (CharClasses) its alphabet classes are computed from. Every compilation gets
+ * its own context, so regexes can be compiled concurrently (e.g. on a thread pool) without sharing any mutable state.
+ * A context is not itself thread safe: it must only be used by one compilation at a time
+ */
+public class CompilationContext {
+    private int stateCount = 0;
+    private int dfaStateCount = 0;
+    private char[] inputAlphabet = new char[0];
+    private final Set<CharClass> symbols = new LinkedHashSet<>();
+    private AlphabetClasses alphabetClasses;
+
+    /**
+     * Return the next available State id: ids are dense, starting at 0
+     */
+    int nextStateId() {
+        return stateCount++;
+    }
+
+    /**
+     * Return the next available DFAState id: ids are dense, starting at 0
+     */
+    int nextDFAStateId() {
+        return dfaStateCount++;
+    }
+
+    /**
+     * Returns the number of State ids handed out so far
+     */
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * Returns the input alphabets accepted by the language
+     */
+    public char[] getInputSymbol() {
+        return inputAlphabet;
+    }
+
+    /**
+     * Set the input alphabets accepted by the language
+     */
+    public void setInputSymbol(char[] inputAlphabet) {
+        this.inputAlphabet = inputAlphabet;
+    }
+
+    /**
+     * Record an input symbol of an expression compiled in this context (see Fragment)
+     */
+    public void addSymbols(CharClass symbol) {
+        if (symbols.add(symbol)) {
+            alphabetClasses = null;
+        }
+    }
+
+    /**
+     * Returns the equivalence classes of the input symbols recorded so far (see AlphabetClasses)
+     */
+    public AlphabetClasses getAlphabetClasses() {
+        if (alphabetClasses == null) {
+            alphabetClasses = AlphabetClasses.of(symbols);
+        }
+        return alphabetClasses;
+    }
+}
@@ -4,48 +4,94 @@ import java.util.*;
 
 /**
  * DFAState (similar to the State) defines each state the DFA: Created by Kaba Yusuf on 9/30/2016.
- * Each state has a char label and a HashMap of transitions linking an input alphabet to a list of States that it transitions
- * to via that alphabetCreated by Yusuf on 10/3/2016
+ * Each state has a unique int id, a display label and a CharIntMap of transitions linking an input alphabet to the id of
+ * the DFAState that it transitions to via that alphabetCreated by Yusuf on 10/3/2016
+ * A DFAState built by SubsetConstruction stands for a set of NFA states (its component states), one built by
+ * Brzozowski stands for a regular expression (a derivative of the regex) and has no component states
  */
 public class DFAState {
-    private char label;
+    private final int id;
+    private String label;
     private List<State> componentStates;
-    private HashMap<Character, List<Character>> transitions;
-    private static int stateLabel = 65;
+    private BitSet key;
+    private RegexNode expression;
+    private final CharIntMap transitions;
 
-    public DFAState(List<State> componentStates) {
+    public DFAState(List<State> componentStates, CompilationContext context) {
+        this.id = context.nextDFAStateId();
         this.componentStates = componentStates;
-        if(componentStates.isEmpty()){
-            this.label = '-';
-        } else {
-            setLabel();
-        }
-        transitions = new HashMap<>();
+        this.key = keyOf(componentStates);
+        setLabel();
+        transitions = new CharIntMap();
     }
 
-    public DFAState(char label, List<State> componentStates) {
+    /**
+     * Create a DFAState whose canonical key (see getKey) has already been computed by the caller
+     */
+    public DFAState(BitSet key, List<State> componentStates, CompilationContext context) {
+        this.id = context.nextDFAStateId();
+        this.componentStates = componentStates;
+        this.key = key;
+        setLabel();
+        transitions = new CharIntMap();
+    }
+
+    public DFAState(String label, List<State> componentStates, CompilationContext context) {
+        this.id = context.nextDFAStateId();
         this.label = label;
         this.componentStates = componentStates;
-        transitions = new HashMap<>();
+        this.key = keyOf(componentStates);
+        transitions = new CharIntMap();
     }
 
-    public char getLabel() {
+    /**
+     * Create a DFAState that stands for expression rather than for NFA states (see Brzozowski), whose canonical key
+     * has already been computed by the caller. If label is null, the state is labelled like the others
+     */
+    public DFAState(String label, BitSet key, RegexNode expression, CompilationContext context) {
+        this.id = context.nextDFAStateId();
+        this.componentStates = Collections.emptyList();
+        this.key = key;
+        this.expression = expression;
+        if (label == null) {
+            setLabel();
+        } else {
+            this.label = label;
+        }
+        transitions = new CharIntMap();
+    }
+
+    /**
+     * Unique integer id of this state within its DFA (handed out by its CompilationContext): transitions refer to
+     * DFAStates by id
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getLabel() {
         return label;
     }
 
-    HashMap<Character, List<Character>> getTransitions() {
-        return transitions;
+    /**
+     * Return the id of the DFAState this state transitions to via input, or CharIntMap.NONE
+     */
+    public int getTransition(char input) {
+        return transitions.get(input);
+    }
+
+    /**
+     * Return the input alphabets this state has a transition via, in ascending order
+     */
+    public char[] getSymbols() {
+        return transitions.keys();
     }
 
+    /**
+     * The dead state is labelled '-', other states are labelled by their id
+     */
     private void setLabel() {
-        if(91 <= stateLabel && stateLabel <= 96) {
-            stateLabel = 97;
-        }
-        if(stateLabel == 70 || stateLabel == 83){
-            stateLabel++;
-        }
-        label = (char) stateLabel;
-        stateLabel++;
+        label = isDead() ? "-" : Integer.toString(id);
     }
 
     public List<State> getComponentStates() {
@@ -53,16 +99,45 @@ public class DFAState {
     }
 
     /**
-     * Given an input alphabet and a character label
-     * If the input character already exists, update the its list of labels
-     * If the input character does not exist, add a new entry to the transitions
+     * Returns the regular expression this state stands for (see Brzozowski), or null if it stands for NFA states
      */
-    public void updateTransitions(char input, char label) {
-        if(transitions.containsKey(input)){
-            transitions.get(input).add(label);
-        } else {
-            transitions.put(input, Collections.singletonList(label));
+    public RegexNode getExpression() {
+        return expression;
+    }
+
+    /**
+     * Return true if no string is accepted from this state: it has no component states, or stands for ∅
+     */
+    public boolean isDead() {
+        return expression == null ? componentStates.isEmpty() : expression.getKind() == RegexNode.EMPTY;
+    }
+
+    /**
+     * Canonical key of the component states: the set of their ids. Two DFAStates built from the same NFA states
+     * have equal keys regardless of the order in which the states were collected
+     * The key is used in a HashMap (see DFA) so it must not be modified
+     */
+    public BitSet getKey() {
+        return key;
+    }
+
+    /**
+     * Return the canonical key (see getKey) for a list of NFA states
+     */
+    public static BitSet keyOf(List<State> states) {
+        BitSet key = new BitSet();
+        for (State state : states) {
+            key.set(state.getId());
         }
+        return key;
+    }
+
+    /**
+     * Given an input alphabet and the id of a DFAState, make this state transition to that DFAState via input
+     * A DFAState has at most one transition per input: a transition that already exists for input is replaced
+     */
+    public void setTransition(char input, int id) {
+        transitions.put(input, id);
     }
 
     @Override
@@ -71,7 +146,9 @@ public class DFAState {
     }
 
     private String printComponentStates() {
-        if(componentStates.isEmpty()){
+        if(expression != null){
+            return expression.toString();
+        } else if(componentStates.isEmpty()){
             return "Empty";
         } else {
             StringBuilder stringBuilder = new StringBuilder();
@@ -90,20 +167,10 @@ public class DFAState {
             return "Empty";
         } else {
             StringBuilder stringBuilder = new StringBuilder();
-            for (Map.Entry<Character, List<Character>> entry : transitions.entrySet()) {
-                stringBuilder.append(entry.getKey()).append(": ");
-                for(Character stateLabel : entry.getValue()) {
-                    stringBuilder.append(stateLabel).append(", ");
-                }
+            for (char symbol : transitions.keys()) {
+                stringBuilder.append(CharClass.of(symbol)).append(": ").append(transitions.get(symbol)).append(", ");
             }
             return stringBuilder.toString();
         }
     }
-
-    /**
-     * Reset label after each DFA is generated!
-     */
-    public static void resetLabelCount() {
-        stateLabel = 65;
-    }
 }
@@ -0,0 +1,145 @@
+package com.kaba.helper;
+
+/**
+ * Primitive token stream of an arithmetic statement (see Regex.infixToPostfixString), built by a single hand written
+ * pass over the statement instead of regular expression splitting
+ * Whitespace is dropped while the statement is copied into a char[] source, and every token is an int coded kind plus
+ * the offsets [start, end) of its text in that source, so no String is allocated until an operand is emitted
+ * Tokens are split exactly like the former split on the delimiters = | + * - / ( ): every delimiter is a token of its
+ * own and every maximal run of other characters is an operand. '|' is a delimiter but not an operator, so it is an
+ * operand of its own. An empty statement is a single empty operand
+ */
+final class ExpressionTokens {
+    static final int OPERAND = 0;
+    static final int OPERATOR = 1;
+    static final int LEFT_PARENTHESIS = 2;
+    static final int RIGHT_PARENTHESIS = 3;
+
+    private final char[] source;
+    private final int[] kinds;
+    private final int[] starts;
+    private final int[] ends;
+    private final int count;
+
+    private ExpressionTokens(char[] source, int[] kinds, int[] starts, int[] ends, int count) {
+        this.source = source;
+        this.kinds = kinds;
+        this.starts = starts;
+        this.ends = ends;
+        this.count = count;
+    }
+
+    /**
+     * Split input into tokens
+     * Algorithm:
+     *  for each character c of input  do
+     *      if c is whitespace then skip it
+     *      copy c to the source
+     *      if c is a delimiter then add the token c
+     *      else if the last token is an operand run ending just before c then extend it
+     *      else start a new operand run at c
+     *  end
+     */
+    static ExpressionTokens tokenize(String input) {
+        int length = input.length();
+        char[] source = new char[length];
+        int[] kinds = new int[length + 1];
+        int[] starts = new int[length + 1];
+        int[] ends = new int[length + 1];
+        int size = 0;
+        int count = 0;
+        boolean inRun = false;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (isWhitespace(c)) {
+                continue;
+            }
+            source[size] = c;
+            int kind = kindOf(c);
+            if (kind == OPERAND && c != '|') {
+                if (inRun) {
+                    ends[count - 1] = ++size;
+                    continue;
+                }
+                inRun = true;
+            } else {
+                inRun = false;
+            }
+            kinds[count] = kind;
+            starts[count] = size;
+            ends[count++] = ++size;
+        }
+        if (count == 0) {
+            kinds[0] = OPERAND;
+            count = 1;
+        }
+        return new ExpressionTokens(source, kinds, starts, ends, count);
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Return the kind of token i
+     * Throws ArrayIndexOutOfBoundsException if there is no token i, like indexing past the former array of tokens
+     */
+    int kind(int i) throws ArrayIndexOutOfBoundsException {
+        if (i < 0 || i >= count) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+        return kinds[i];
+    }
+
+    /**
+     * Return the first character of token i: the operator itself for an OPERATOR
+     */
+    char symbol(int i) {
+        return source[starts[i]];
+    }
+
+    /**
+     * Return the text of token i
+     */
+    String text(int i) {
+        return new String(source, starts[i], ends[i] - starts[i]);
+    }
+
+    /**
+     * Prefix token i + 1 with token i (they are adjacent in the source): the result is an operand, e.g. the sign of a
+     * unary minus merged with its operand
+     * Throws ArrayIndexOutOfBoundsException if there is no token i + 1
+     */
+    void mergeIntoNext(int i) throws ArrayIndexOutOfBoundsException {
+        kind(i + 1);
+        starts[i + 1] = starts[i];
+        kinds[i + 1] = OPERAND;
+    }
+
+    /**
+     * Return the kind of the token made of the single character c
+     */
+    private static int kindOf(char c) {
+        switch (c) {
+            case '=':
+            case '+':
+            case '*':
+            case '-':
+            case '/':
+                return OPERATOR;
+            case '(':
+                return LEFT_PARENTHESIS;
+            case ')':
+                return RIGHT_PARENTHESIS;
+            default:
+                return OPERAND;
+        }
+    }
+
+    /**
+     * Return true if c is whitespace in the sense of the regular expression \s: space, \t, \n, \x0B, \f or \r
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+}
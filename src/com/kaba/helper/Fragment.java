@@ -1,42 +1,132 @@
 package com.kaba.helper;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Fragment represents building blocks/components of NFA or DFA: Created by Kaba Yusuf on 9/30/2016.
  * This class is used by the Thompson algorithm to build up an NFA from a postfix expression
+ * Every operation on fragments is O(1) (amortized), so Thompson builds an NFA in time linear in the length of the
+ * expression:
+ *  the states of a fragment other than its final state are kept in an intrusive linked list (State.nextState), so the
+ *  states of two fragments are merged by linking the tail of one list to the head of the other
+ *  the edges that lead to the final state are kept in a patch list (ranges of edges of a state), so concatenation
+ *  points them to the start state of the second fragment without searching the states for them. Every edge is patched
+ *  at most once: once patched it leads to an inner state and is in no patch list any more
  */
 public class Fragment {
 
+    private State firstState;
+    private State lastState;
+    private int stateCount;
     private Set<State> states;
     private State startState;
     private State finalState;
-    private static char[] inputAlphabet;
+    private State[] patchStates;
+    private int[] patchFrom;
+    private int[] patchTo;
+    private int patchCount;
+    private Set<State> acceptingStates;
+    private final CompilationContext context;
 
-    public Fragment(Character input) {
-        //Create Start state
-        State startState = new State('S');
-        HashMap<Character, List<State>> transitions = new HashMap<>();
-
-        //Create final state
-        State finalState = new State('F');
+    /**
+     * Create an empty building block: a start and a final state without transitions
+     */
+    public Fragment(CompilationContext context) {
+        this.context = context;
+        this.startState = new State("S", context);
+        this.finalState = new State("F", context);
+        this.patchStates = new State[2];
+        this.patchFrom = new int[2];
+        this.patchTo = new int[2];
+        append(startState);
+    }
 
+    public Fragment(Character input, CompilationContext context) {
+        this(context);
         //Update startStart to point to final state via transitions
-        List<State> stateList = new LinkedList<>(Collections.singletonList(finalState));
-        transitions.put(input, stateList);
-        startState.setTransitions(transitions);
+        addPatch(startState, startState.getEdgeCount(), 1);
+        startState.addTransition(input, finalState);
+    }
 
-        //Initialize parameters to default values
-        this.states = new HashSet<>(Arrays.asList(startState, finalState));
-        this.startState = startState;
-        this.finalState = finalState;
+    /**
+     * Create a basic fragment whose start state transitions to its final state via every character of symbols: one edge
+     * per range of symbols, which is recorded in context (see CompilationContext.addSymbols)
+     */
+    public Fragment(CharClass symbols, CompilationContext context) {
+        this(context);
+        context.addSymbols(symbols);
+        addPatch(startState, startState.getEdgeCount(), symbols.getRanges().length / 2);
+        startState.addTransitions(symbols, finalState);
     }
 
-    Set<State> getStates() {
+    /**
+     * Create the position automaton of an expression with n input symbols (see Glushkov): state 0 is the start state
+     * and state p (1 <= p <= n) is the position of the p-th input symbol, symbols[p]. There are no ε transitions: every
+     * transition into position q is via the ranges of symbols[q], which are recorded in context
+     * The start state transitions to the positions in first, position p to the positions in follow[p], and the
+     * accepting states are the positions in last, plus the start state if nullable (the expression matches ε)
+     * last must not be empty: its last position is the final state of the fragment
+     */
+    public Fragment(CharClass[] symbols, int[] first, int[][] follow, int[] last, boolean nullable, CompilationContext context) {
+        this.context = context;
+        this.patchStates = new State[2];
+        this.patchFrom = new int[2];
+        this.patchTo = new int[2];
+        State[] positions = new State[symbols.length];
+        positions[0] = new State("S", context);
+        for (int p = 1; p < positions.length; p++) {
+            positions[p] = new State("", context);
+            positions[p].setLabel();
+        }
+        for (int p = 1; p < symbols.length; p++) {
+            context.addSymbols(symbols[p]);
+        }
+        for (int q : first) {
+            positions[0].addTransitions(symbols[q], positions[q]);
+        }
+        for (int p = 1; p < positions.length; p++) {
+            for (int q : follow[p]) {
+                positions[p].addTransitions(symbols[q], positions[q]);
+            }
+        }
+        startState = positions[0];
+        finalState = positions[last[last.length - 1]];
+        for (State position : positions) {
+            if (position != finalState) {
+                append(position);
+            }
+        }
+        acceptingStates = new LinkedHashSet<>();
+        if (nullable) {
+            acceptingStates.add(startState);
+        }
+        for (int p : last) {
+            acceptingStates.add(positions[p]);
+        }
+    }
+
+    /**
+     * Returns the states of the fragment (built on demand from the state list, so it must not be modified)
+     */
+    public Set<State> getStates() {
+        if (states == null) {
+            Set<State> all = new LinkedHashSet<>(2 * stateCount + 2);
+            for (State state = firstState; state != null; state = state.nextState) {
+                all.add(state);
+            }
+            all.add(finalState);
+            states = Collections.unmodifiableSet(all);
+        }
         return states;
     }
 
+    /**
+     * Returns the number of states of the fragment
+     */
+    public int getStateCount() {
+        return stateCount + 1;
+    }
+
     public State getStartState() {
         return startState;
     }
@@ -54,11 +144,23 @@ public class Fragment {
     }
 
     /**
-     * Return State from Fragment whose label is char label or return null
+     * Returns the accepting states of the fragment: only its final state for a Thompson fragment, any number of states
+     * for a position automaton (see positionAutomaton)
+     */
+    public Set<State> getAcceptingStates() {
+        return acceptingStates == null ? Collections.singleton(finalState) : Collections.unmodifiableSet(acceptingStates);
+    }
+
+    public boolean isAccepting(State state) {
+        return acceptingStates == null ? finalState.equals(state) : acceptingStates.contains(state);
+    }
+
+    /**
+     * Return State from Fragment whose label is label or return null
      */
-    State returnStateFromCharacter(char label) {
-        for(State state : states) {
-            if(state.getLabel() == label){
+    State returnStateFromLabel(String label) {
+        for(State state : getStates()) {
+            if(state.getLabel().equals(label)){
                 return state;
             }
         }
@@ -69,11 +171,11 @@ public class Fragment {
      * Private method to return a properly formatted string for the set of states to be used in the toString method
      */
     private String printStates(){
-        if(states.isEmpty()){
+        if(getStates().isEmpty()){
             return "Empty";
         } else {
             StringBuilder stringBuilder = new StringBuilder();
-            for (State state : states) {
+            for (State state : getStates()) {
                 stringBuilder.append(state).append("\n");
             }
             return stringBuilder.toString();
@@ -86,6 +188,7 @@ public class Fragment {
                 "\nstates: \n" + printStates() +
                 "\nstartState: " + startState +
                 "\nfinalState: " + finalState +
+                (acceptingStates == null ? "" : "\nacceptingStates: " + acceptingStates) +
                 "\nEnd Of Fragment";
     }
 
@@ -95,14 +198,10 @@ public class Fragment {
      * This merges the two fragments and is used in the alternation operator of Thompson
      */
     public void epsilonTransitionToFragmentViaStart(Fragment fragment) {
-        //Get start state of fragment and add to a list
-        List<State> stateList = new LinkedList<>(Collections.singletonList(fragment.getStartState()));
-
-        HashMap<Character, List<State>> transitions = new HashMap<>();
-        transitions.put('\u03B5', stateList);
-        this.getStartState().updateTransitions(transitions);
+        this.getStartState().addTransition(State.EPSILON, fragment.getStartState());
         fragment.getStartState().setLabel();
-        this.getStates().addAll(fragment.getStates());
+        append(fragment);
+        append(fragment.getFinalState());
     }
 
     /**
@@ -115,44 +214,40 @@ public class Fragment {
         State finalState = fragment.getFinalState();
 
         //Create transition from final state of fragment to final of buildingBlock (calling fragment)
-        List<State> stateList = new LinkedList<>(Collections.singletonList(this.getFinalState()));
-        HashMap<Character, List<State>> transitions = new HashMap<>();
-        transitions.put('\u03B5', stateList);
-        finalState.updateTransitions(transitions);
+        addPatch(finalState, finalState.getEdgeCount(), 1);
+        finalState.addTransition(State.EPSILON, this.getFinalState());
 
         //Update label of fragment's 'final' state && point fragment's final state to buildingBlock (calling fragment)
         finalState.setLabel();
         fragment.setFinalState(this.getFinalState());
     }
 
-    /*public void setFinalStateViaEpsilon(State finalState) {
-        //Get final state of fragment and add to a list
-        List<State> stateList = new LinkedList<>(Collections.singletonList(finalState));
-
-        HashMap<Character, List<State>> transitions = new HashMap<>();
-        transitions.put('\u03B5', stateList);
-        this.getFinalState().updateTransitions(transitions);
-        this.getFinalState().setLabel();
-        this.getStates().add(finalState);
-    }*/
-
     /**
      * Concatenate the calling fragment with the fragment second
-     * This is done by pointing all transitions leading to the final state in the first fragment to the start state in the second
+     * This is done by pointing all transitions leading to the final state in the first fragment (its patch list) to the
+     * start state in the second
      * The start of the second is then set to the start of the first, the final of the first is also set to the start of the second
      * second fragment is returned
      * This merges the two fragments and is used in the concatenation operator of Thompson
      */
     public void concatenate(Fragment second) {
-        LinkedList<State> statesThatTransitionToFinal = this.getStatesThatTransitionToFinal();
-        for(State state : statesThatTransitionToFinal){
-            state.moveTransitionsFromFinalTo(second.getStartState(), this.getFinalState());
+        for (int i = 0; i < patchCount; i++) {
+            patchStates[i].retarget(patchFrom[i], patchTo[i], this.getFinalState(), second.getStartState());
+            patchStates[i] = null;
         }
+        patchCount = 0;
         second.getStartState().setLabel();
         second.setStartState(this.getStartState());
-        this.getStates().remove(this.getFinalState());
+        if (this.firstState != null) {
+            this.lastState.nextState = second.firstState;
+            second.firstState = this.firstState;
+            if (second.lastState == null) {
+                second.lastState = this.lastState;
+            }
+            second.stateCount += this.stateCount;
+            second.states = null;
+        }
         this.setFinalState(second.getStartState());
-        second.getStates().addAll(this.getStates());
     }
 
     /**
@@ -161,13 +256,10 @@ public class Fragment {
      */
     public void transitionFromFinalToStart() {
         //Create transition from final state of this to start state of this
-        if(this.getFinalState().containsTransitionTo(getStartState(), '\u03B5')){
+        if(this.getFinalState().containsTransitionTo(getStartState(), State.EPSILON)){
             return;
         }
-        List<State> stateList = new LinkedList<>(Collections.singletonList(this.getStartState()));
-        HashMap<Character, List<State>> transitions = new HashMap<>();
-        transitions.put('\u03B5', stateList);
-        this.getFinalState().updateTransitions(transitions);
+        this.getFinalState().addTransition(State.EPSILON, this.getStartState());
     }
 
     /**
@@ -176,34 +268,70 @@ public class Fragment {
      */
     public void transitionFromStartToFinal() {
         //Create transition from final state of this to start state of this
-        if(this.getStartState().containsTransitionTo(getFinalState(), '\u03B5')){
+        if(this.getStartState().containsTransitionTo(getFinalState(), State.EPSILON)){
             return;
         }
-        List<State> stateList = new LinkedList<>(Collections.singletonList(this.getFinalState()));
-        HashMap<Character, List<State>> transitions = new HashMap<>();
-        transitions.put('\u03B5', stateList);
-        this.getStartState().updateTransitions(transitions);
+        addPatch(getStartState(), getStartState().getEdgeCount(), 1);
+        this.getStartState().addTransition(State.EPSILON, this.getFinalState());
     }
 
     /**
-     * This is a helper method that returns states that have transitions to the final state
-     * This is used in the concatenate method
+     * Add the count edges of state from edge from to the patch list: they lead to the final state
      */
-    private LinkedList<State> getStatesThatTransitionToFinal() {
-        return this.getStates().stream().filter(state -> state.containsTransitionTo(this.getFinalState())).collect(Collectors.toCollection(LinkedList::new));
+    private void addPatch(State state, int from, int count) {
+        if (patchCount == patchStates.length) {
+            patchStates = Arrays.copyOf(patchStates, 2 * patchCount);
+            patchFrom = Arrays.copyOf(patchFrom, 2 * patchCount);
+            patchTo = Arrays.copyOf(patchTo, 2 * patchCount);
+        }
+        patchStates[patchCount] = state;
+        patchFrom[patchCount] = from;
+        patchTo[patchCount++] = from + count;
     }
 
     /**
-     * Returns the input alphabets accepted by the language
+     * Append state to the state list
+     */
+    private void append(State state) {
+        state.nextState = null;
+        if (lastState == null) {
+            firstState = state;
+        } else {
+            lastState.nextState = state;
+        }
+        lastState = state;
+        stateCount++;
+        states = null;
+    }
+
+    /**
+     * Append the state list of fragment (every state but its final state) to the state list
+     */
+    private void append(Fragment fragment) {
+        if (fragment.firstState == null) {
+            return;
+        }
+        if (lastState == null) {
+            firstState = fragment.firstState;
+        } else {
+            lastState.nextState = fragment.firstState;
+        }
+        lastState = fragment.lastState;
+        stateCount += fragment.stateCount;
+        states = null;
+    }
+
+    /**
+     * Returns the CompilationContext this fragment was built in
      */
-    public static char[] getInputSymbol() {
-        return inputAlphabet;
+    public CompilationContext getContext() {
+        return context;
     }
 
     /**
      * Returns the input alphabets accepted by the language
      */
-    static void setInputSymbol(char[] setAlphabet) {
-        inputAlphabet = setAlphabet;
+    public char[] getInputSymbol() {
+        return context.getInputSymbol();
     }
 }
@@ -0,0 +1,32 @@
+package com.kaba.helper;
+
+/**
+ * A rule of a lexer specification: the name of a token and the regular expression that its lexemes match
+ * Rules are given to LexerGenerator as an ordered list: when two rules match the same longest lexeme, the rule that
+ * comes first wins (e.g. a keyword rule "if" listed before an identifier rule [a-z]+)
+ */
+public class LexerRule {
+    private final String name;
+    private final String regex;
+
+    public LexerRule(String name, String regex) {
+        this.name = name;
+        this.regex = regex;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    @Override
+    public String toString() {
+        return "LexerRule{" +
+                "name='" + name + '\'' +
+                ", regex='" + regex + '\'' +
+                '}';
+    }
+}
@@ -1,7 +1,6 @@
 package com.kaba.helper;
 
 import java.util.*;
-import java.util.regex.Pattern;
 
 /**
  * Class for Regular Expression Methods: Created by Kaba Yusuf on 9/30/2016.
@@ -9,191 +8,133 @@ import java.util.regex.Pattern;
 public class Regex {
 
     /**
-     * Convert and return equivalent postfix string of input: Note that this method does no validity checks on the string
-     * so caller must ensure that a properly formatted regular expression is passed as input
-     *
-     * Algorithm: Dijkstra's Shunting yard algorithm: https://repository.cwi.nl/noauth/search/fullrecord.php?publnr=9251
-     *  Read a token.
-     *      If the token is a number, then add it to the output queue.
-     *      If the token is a function token, then push it onto the stack.
-     *      If the token is a function argument separator (e.g., a comma):
-     *      Until the token at the top of the stack is a left parenthesis, pop operators off the stack onto the output queue. If no left parentheses are encountered, either the separator was misplaced or parentheses were mismatched.
-     *      If the token is an operator, o1, then:
-     *
-     *          while there is an operator token o2, at the top of the operator stack and either
-     *              o1 is left-associative and its precedence is less than or equal to that of o2, or
-     *              o1 is right associative, and has precedence less than that of o2,
-     *                  pop o2 off the operator stack, onto the output queue;
-     *          at the end of iteration push o1 onto the operator stack.
-     *
-     *      If the token is a left parenthesis (i.e. "("), then push it onto the stack.
-     *
-     *      If the token is a right parenthesis (i.e. ")"):
-     *
-     *          Until the token at the top of the stack is a left parenthesis, pop operators off the stack onto the output queue.
-     *          Pop the left parenthesis from the stack, but not onto the output queue.
-     *          If the token at the top of the stack is a function token, pop it onto the output queue.
-     *          If the stack runs out without finding a left parenthesis, then there are mismatched parentheses.
-     *
-     *  When there are no more tokens to read:
-     *
-     *      While there are still operator tokens in the stack:
-     *          If the operator token on the top of the stack is a parenthesis, then there are mismatched parentheses.
-     *          Pop the operator onto the output queue.
-     *
-     *  Exit
+     * Convert and return equivalent postfix expression of input
+     * The expression is validated, made explicit (concatenation) and converted in a single pass over its characters by
+     * RegexParser, which reports errors with their position in input
+     * Input symbols may be any character: literals, escapes (\*, \n, \d, \w, \s ...) and bracketed classes
+     * ([a-z0-9_], [^"]), so neither the size of the alphabet nor the number of symbols is limited
+     * Throws IllegalArgumentException if input is not a valid regular expression (see RegexParser for the algorithm)
      */
-    public static Queue<Character> infixToPostfix(String input) throws IllegalArgumentException {
-        Stack<Character> stack = new Stack<>();
-        Queue<Character> postFix = new LinkedList<>();
-        input = input.replaceAll("\\s", "");
-
-        Pattern merged = Pattern.compile("(^[(]?[abcde][.+*|?()])([.|()]?)([abcde][.+*|?()][*+?.|()]*)*([abcde][*+?.|)]?[*+?.|)]?)$");
-        if(generateInputSymbol(input).length > 5) {
-            throw new IllegalArgumentException("You entered an invalid regular expression: Too many input alphabets");
-        }
-
-        if(!merged.matcher(input).matches()) {
-            throw new IllegalArgumentException("You entered an invalid regular expression: Invalid regular expression");
-        }
-
-        for (char token: input.toCharArray()) {
-            if(isOperator(token) && !isUnary(token)){
-                while(!stack.isEmpty() && ((isLeftAssociative(token) && precedence(token) <= precedence(stack.peek())) || (!isLeftAssociative(token) && precedence(token) < precedence(stack.peek()))) ){
-                    postFix.add(stack.pop());
-                }
-                stack.push(token);
-            }
-            else if(isOperator(token) && isUnary(token)){
-                while(!stack.isEmpty() && ((isLeftAssociative(token) && precedence(token) <= precedence(stack.peek())) || (!isLeftAssociative(token) && precedence(token) < precedence(stack.peek()))) ){
-                    postFix.add(stack.pop());
-                }
-                postFix.add(token);
-            }
-            else if(token == '('){
-                stack.push(token);
-            }
-            else if(token == ')'){
-                try {
-                    while (stack.peek() != '(') {
-                        postFix.add(stack.pop());
-                    }
-                    stack.pop();
-                } catch (EmptyStackException e){
-                    throw new IllegalArgumentException("You entered an invalid regular expression: Missing braces");
-                }
-            } else {
-                postFix.add(token);
-            }
-        }
-        while(!stack.empty()) {
-            if(stack.peek() == ')' || stack.peek() == '(') {
-                throw new IllegalArgumentException("You entered an invalid regular expression: Missing braces");
-            }
-            postFix.add(stack.pop());
-        }
+    public static Queue<RegexToken> infixToPostfix(String input) throws IllegalArgumentException {
+        return RegexParser.parse(input);
+    }
 
-        return postFix;
+    /**
+     * Return an equivalent postfix expression of postfix (see infixToPostfix), which is not consumed, rewritten into a
+     * simpler one before the Thompson construction: e.g. (a|a)* becomes a*, (a*)* becomes a* and ab|ac becomes a[bc]
+     * (see RegexNode for the rewrites)
+     * Throws EmptyStackException if postfix is not a valid postfix expression
+     */
+    public static Queue<RegexToken> simplify(Queue<RegexToken> postfix) throws EmptyStackException {
+        return RegexNode.fromPostfix(postfix).toPostfix();
     }
 
     /**
-     * Returns a the count of unique characters in an input
-     * Reference: http://stackoverflow.com/a/22597587/6808335
+     * Return the normalized text of a regular expression: input without whitespace, except whitespace that is escaped
+     * or inside a bracketed class. Regexes with the same normalized text compile to the same automata
+     * The four characters after a backslash and 'u' are kept as they are, so that an invalid unicode escape with
+     * whitespace among its digits does not share its normalized text with the valid one
      */
-    private static char[] generateInputSymbol(String input) {
-        ArrayList<Character> inputAlphabet = new ArrayList<>();
-        int[] inputChar = input.chars().distinct().toArray();
-        for(int singleInput : inputChar){
-            if(!isOperator((char) singleInput) && ((char) singleInput) != ')' && (char) singleInput != '(') {
-                inputAlphabet.add((char) singleInput);
+    public static String normalize(String input) {
+        StringBuilder stripped = new StringBuilder(input.length());
+        boolean inClass = false;
+        for (int i = 0; i < input.length(); i++) {
+            char token = input.charAt(i);
+            if (token == '\\' && i + 1 < input.length()) {
+                int end = input.charAt(i + 1) == 'u' ? Math.min(i + 6, input.length()) : i + 2;
+                stripped.append(input, i, end);
+                i = end - 1;
+                continue;
             }
+            if (token == '[') {
+                inClass = true;
+            } else if (token == ']') {
+                inClass = false;
+            } else if (!inClass && Character.isWhitespace(token)) {
+                continue;
+            }
+            stripped.append(token);
         }
-        char[] alphabets = new char[inputAlphabet.size()];
-        for(int i = 0; i < inputAlphabet.size(); i++) {
-            alphabets[i] = inputAlphabet.get(i);
-        }
-        Fragment.setInputSymbol(alphabets);
-        return alphabets;
+        return stripped.toString();
     }
 
-    private static final String WITH_DELIMITER = "((?<=%1$s)|(?=%1$s))"; //Reference: http://stackoverflow.com/questions/2206378/how-to-split-a-string-but-also-keep-the-delimiters
-
     /**
      * Similar to static Queue<Character> infixToPostfix(String input) but returns a Queue of Strings not characters
      * Convert and return equivalent postfix expression of input: Note that this method does some validity checks on the string
      * It ensures that the expression follows some basic algebraic conventions such as no two operators can follow
      * themselves except + and - and when they do, it resolves the conflict by assigning a "-" to different operators and
      * a "+" to the same operators
-     * Uses Regular Expressions to split input string into tokens delineated by any of the operators: +, -, *, /, (, )
+     * The input is split into tokens delineated by any of the operators: +, -, *, /, (, ) in a single pass (see
+     * ExpressionTokens) and the shunting yard works on the int coded tokens with a char stack of operators
      */
     public static Queue<String> infixToPostfixString(String input) throws IllegalArgumentException, ArrayIndexOutOfBoundsException {
-        Stack<String> stack = new Stack<>();
+        char[] stack = new char[16];
+        int top = 0;
         Queue<String> postFix = new LinkedList<>();
-        input = input.replaceAll("\\s", "");
-        String[] tokens = input.split(String.format(WITH_DELIMITER, "[=|\\+|\\*|\\-|/|)|(]+")); //Reference: http://stackoverflow.com/questions/2206378/how-to-split-a-string-but-also-keep-the-delimiters
-        String token;
+        ExpressionTokens tokens = ExpressionTokens.tokenize(input);
         int opCount = 1;
-        for(int i = 0; i < tokens.length; i++) {
-            token = tokens[i];
-            if(isOperator(token)){
+        for(int i = 0; i < tokens.size(); i++) {
+            int kind = tokens.kind(i);
+            if(kind == ExpressionTokens.OPERATOR){
+                char token = tokens.symbol(i);
                 opCount++;
                 if(opCount > 2){
                     throw new IllegalArgumentException("The expression is not properly formatted.");
                 }
-                if(isOperator(tokens[i + 1]) && ((tokens[i + 1].equals("*") || tokens[i + 1].equals("/")) && (token.equals("*") || token.equals("/")))){
-                    throw new IllegalArgumentException("The expression is not properly formatted.");
-                }
-                else if(isOperator(tokens[i + 1]) && ((tokens[i + 1].equals("*") || tokens[i + 1].equals("/")) && (token.equals("+") || token.equals("-")))){
-                    throw new IllegalArgumentException("The expression is not properly formatted.");
+                if(tokens.kind(i + 1) == ExpressionTokens.OPERATOR){
+                    char next = tokens.symbol(i + 1);
+                    if(isMultiplicative(next) && (isMultiplicative(token) || isAdditive(token))){
+                        throw new IllegalArgumentException("The expression is not properly formatted.");
+                    }
+                    else if(isAdditive(next) && isMultiplicative(token)){
+                        tokens.mergeIntoNext(i + 1);
+                        i++;
+                    }
                 }
-                else if(isOperator(tokens[i + 1]) && ((tokens[i + 1].equals("+") || tokens[i + 1].equals("-")) && (token.equals("*") || token.equals("/")))){
-                    tokens[i + 2] = tokens[i + 1] + tokens[i + 2];
+                if(tokens.kind(i + 1) == ExpressionTokens.OPERATOR){
+                    token = token != tokens.symbol(i + 1) ? '-' : '+';
                     i++;
                 }
-                if(isOperator(tokens[i + 1])){
-                    if(!token.equals(tokens[i + 1])){
-                        token = "-";
-                    } else {
-                        token = "+";
-                    }
-                    i++;
+                while(top > 0 && arithmeticPrecedence(token) < arithmeticPrecedence(stack[top - 1])){
+                    postFix.add(operatorText(stack[--top]));
                 }
-                while(!stack.isEmpty() && precedence(token) < precedence(stack.peek())){
-                    postFix.add(stack.pop());
+                if(top == stack.length){
+                    stack = Arrays.copyOf(stack, 2 * top);
                 }
-                stack.push(token);
+                stack[top++] = token;
             }
-
-            else if(token.equals("(")){
+            else if(kind == ExpressionTokens.LEFT_PARENTHESIS){
                 opCount = 1;
-                if(isOperator(tokens[i + 1]) && (tokens[i + 1].equals("*") || tokens[i + 1].equals("/"))){
+                if(tokens.kind(i + 1) == ExpressionTokens.OPERATOR && isMultiplicative(tokens.symbol(i + 1))){
                     throw new IllegalArgumentException("The expression is not properly formatted.");
                 }
-                stack.push(token);
+                if(top == stack.length){
+                    stack = Arrays.copyOf(stack, 2 * top);
+                }
+                stack[top++] = '(';
             }
-            else if(token.equals(")")){
+            else if(kind == ExpressionTokens.RIGHT_PARENTHESIS){
                 opCount = 1;
-                if(isOperator(tokens[i - 1])){
+                if(tokens.kind(i - 1) == ExpressionTokens.OPERATOR){
                     throw new IllegalArgumentException("The expression is not properly formatted.");
                 }
-                try {
-                    while (!stack.peek().equals("(")) {
-                        postFix.add(stack.pop());
-                    }
-                    stack.pop();
-                } catch (EmptyStackException e){
+                while (top > 0 && stack[top - 1] != '(') {
+                    postFix.add(operatorText(stack[--top]));
+                }
+                if(top == 0){
                     throw new IllegalArgumentException("You entered an invalid expression: Missing braces");
                 }
+                top--;
             } else {
                 opCount = 1;
-                postFix.add(token);
+                postFix.add(tokens.text(i));
             }
         }
-        while(!stack.empty()) {
-            if(stack.peek().equals(")") || stack.peek().equals("(")) {
+        while(top > 0) {
+            if(stack[top - 1] == '(') {
                 throw new IllegalArgumentException("You entered an invalid expression: Missing braces");
             }
-            postFix.add(stack.pop());
+            postFix.add(operatorText(stack[--top]));
         }
 
         return postFix;
@@ -207,71 +148,61 @@ public class Regex {
     }
 
     /**
-     * Return the precedence level of char token
-     * Unary operators: *, +, ? have highest precedence followed by concatenation operator: . and finally alternation operator: |
+     * Return the precedence level of the arithmetic operator token: /, *, + and -, = (0 for '(')
      */
-    private static int precedence(String token) {
+    private static int arithmeticPrecedence(char token) {
         switch (token) {
-            case "/":
+            case '/':
                 return 4;
-            case "*":
+            case '*':
                 return 3;
-            case "+":
+            case '+':
                 return 2;
-            case "-":
+            case '-':
                 return 2;
-            case "=":
+            case '=':
                 return 1;
             default:
                 return 0;
         }
     }
 
-    /**
-     * Return true of char token is a unary operator: *, +, ?
-     */
-    public static boolean isUnary(char token) {
-        switch (token) {
-            case '*':
-                return true;
-            case '+':
-                return true;
-            case '?':
-                return true;
-            default:
-                return false;
-        }
+    private static boolean isMultiplicative(char token) {
+        return token == '*' || token == '/';
+    }
+
+    private static boolean isAdditive(char token) {
+        return token == '+' || token == '-';
     }
 
     /**
-     * Return the precedence level of char token
-     * Unary operators: *, +, ? have highest precedence followed by concatenation operator: . and finally alternation operator: |
+     * Return the text of the arithmetic operator token, without allocating a String per operator
      */
-    private static int precedence(char token) {
+    private static String operatorText(char token) {
         switch (token) {
-            case '+':
-                return 3;
+            case '/':
+                return "/";
             case '*':
-                return 3;
-            case '?':
-                return 3;
-            case '.':
-                return 2;
-            case '|':
-                return 1;
+                return "*";
+            case '+':
+                return "+";
+            case '-':
+                return "-";
             default:
-                return 0;
+                return "=";
         }
     }
 
     /**
-     * Return true if char token is left associative: ., |
+     * Return true of char token is a unary operator: *, +, ?
      */
-    private static boolean isLeftAssociative(char token) {
+    public static boolean isUnary(char token) {
         switch (token) {
-            case '.':
+            case '*':
+                return true;
+            case '+':
                 return true;
-            case '|':
+            case '?':
                 return true;
             default:
                 return false;
@@ -0,0 +1,617 @@
+package com.kaba.helper;
+
+import java.util.*;
+
+/**
+ * Immutable node of the abstract syntax tree of a regular expression, between the postfix expression of
+ * Regex.infixToPostfix and the Thompson construction (see Regex.simplify)
+ * A node is an input symbol (a CharClass), a concatenation or an alternation of two or more children, or a closure
+ * (*, + or ?) of one child. Nodes are only built by smart constructors that simplify as they build, so every tree is
+ * simplified bottom up while the postfix expression is read, without recursion:
+ *  x** = (x+)* = (x?)* = (x*)+ = (x?)+ = (x*)? = (x+)? = x*, x++ = x+, x?? = x?, x+ = x* and x? = x if x matches ε
+ *  (x*|y+|z?)* = (x|y|z)* and x?|y = (x|y)?
+ *  nested concatenations and alternations are flattened and x*x* = x*
+ *  duplicate alternatives are dropped: (a|a) = a
+ *  alternatives with a common prefix are factored: abc|abd|a = a(b(c|d))?
+ *  single symbol alternatives are merged into one class: a|[0-9]|b = [0-9ab]
+ * Every rewrite keeps the language of the expression, so the automata built from the simplified tree accept the same
+ * strings with fewer states. Nodes are compared structurally (equals and hashCode), which is what finds duplicates
+ * The derivatives of an expression (see Brzozowski) also need the nodes EMPTY (∅, no string) and EPSILON (ε, the empty
+ * string), which the smart constructors absorb: ∅x = x∅ = ∅, εx = xε = x, ∅|x = x, ε|x = x?, ∅* = ε* = ε, so they
+ * only ever appear as a whole tree, never as a child. Alternatives are kept sorted (see ORDER), so an alternation is a
+ * set and two expressions that only differ by the order of their alternatives are equal
+ */
+public final class RegexNode {
+    public static final int SYMBOLS = 0;
+    public static final int CONCATENATION = 1;
+    public static final int ALTERNATION = 2;
+    public static final int STAR = 3;
+    public static final int PLUS = 4;
+    public static final int OPTIONAL = 5;
+    public static final int EMPTY = 6;
+    public static final int EPSILON = 7;
+
+    private static final RegexNode[] NO_CHILDREN = new RegexNode[0];
+    private static final RegexNode EMPTY_NODE = new RegexNode(EMPTY, null, NO_CHILDREN);
+    private static final RegexNode EPSILON_NODE = new RegexNode(EPSILON, null, NO_CHILDREN);
+
+    /**
+     * Total order of nodes consistent with equals: by hash code first, so that it is cheap for distinct nodes, then
+     * structurally (see compare)
+     */
+    public static final Comparator<RegexNode> ORDER = RegexNode::compare;
+
+    private final int kind;
+    private final CharClass symbols;
+    private final RegexNode[] children;
+    private final boolean nullable;
+    private final int size;
+    private final int hash;
+
+    private RegexNode(int kind, CharClass symbols, RegexNode[] children) {
+        this.kind = kind;
+        this.symbols = symbols;
+        this.children = children;
+        int size = 1;
+        int hash = 31 * kind + (symbols == null ? 0 : symbols.hashCode());
+        boolean nullable = kind == STAR || kind == OPTIONAL || kind == CONCATENATION || kind == EPSILON;
+        for (RegexNode child : children) {
+            size += child.size;
+            hash = 31 * hash + child.hash;
+            if (kind == CONCATENATION) {
+                nullable &= child.nullable;
+            } else if (kind != STAR && kind != OPTIONAL) {
+                nullable |= child.nullable;
+            }
+        }
+        this.nullable = nullable;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    public static RegexNode symbols(CharClass symbols) {
+        return new RegexNode(SYMBOLS, symbols, NO_CHILDREN);
+    }
+
+    /**
+     * Return ∅, the node that matches no string
+     */
+    public static RegexNode empty() {
+        return EMPTY_NODE;
+    }
+
+    /**
+     * Return ε, the node that only matches the empty string
+     */
+    public static RegexNode epsilon() {
+        return EPSILON_NODE;
+    }
+
+    /**
+     * Return the node of x*
+     */
+    public static RegexNode star(RegexNode x) {
+        if (x.kind == STAR) {
+            return x;
+        }
+        if (x.kind == EMPTY || x.kind == EPSILON) {
+            return EPSILON_NODE;
+        }
+        if (x.kind == PLUS || x.kind == OPTIONAL) {
+            return star(x.children[0]);
+        }
+        if (x.kind == ALTERNATION) {
+            List<RegexNode> alternatives = new ArrayList<>(x.children.length);
+            boolean unwrapped = false;
+            for (RegexNode alternative : x.children) {
+                boolean closure = alternative.kind == STAR || alternative.kind == PLUS || alternative.kind == OPTIONAL;
+                alternatives.add(closure ? alternative.children[0] : alternative);
+                unwrapped |= closure;
+            }
+            if (unwrapped) {
+                return star(alternate(alternatives));
+            }
+        }
+        return new RegexNode(STAR, null, new RegexNode[]{x});
+    }
+
+    /**
+     * Return the node of x+
+     */
+    public static RegexNode plus(RegexNode x) {
+        if (x.kind == PLUS || x.kind == EMPTY) {
+            return x;
+        }
+        if (x.nullable) {
+            return star(x);
+        }
+        return new RegexNode(PLUS, null, new RegexNode[]{x});
+    }
+
+    /**
+     * Return the node of x?
+     */
+    public static RegexNode optional(RegexNode x) {
+        if (x.nullable) {
+            return x;
+        }
+        if (x.kind == EMPTY) {
+            return EPSILON_NODE;
+        }
+        if (x.kind == PLUS) {
+            return star(x.children[0]);
+        }
+        return new RegexNode(OPTIONAL, null, new RegexNode[]{x});
+    }
+
+    /**
+     * Return the node of the concatenation of sequence, in order
+     * Throws IllegalArgumentException if sequence is empty
+     */
+    public static RegexNode concatenate(Collection<RegexNode> sequence) throws IllegalArgumentException {
+        if (sequence.isEmpty()) {
+            throw new IllegalArgumentException("A concatenation needs at least one operand");
+        }
+        List<RegexNode> flat = new ArrayList<>(sequence.size());
+        for (RegexNode element : sequence) {
+            if (element.kind == EMPTY) {
+                return EMPTY_NODE;
+            }
+            if (element.kind == EPSILON) {
+                continue;
+            }
+            if (element.kind == CONCATENATION) {
+                for (RegexNode child : element.children) {
+                    appendToSequence(flat, child);
+                }
+            } else {
+                appendToSequence(flat, element);
+            }
+        }
+        if (flat.isEmpty()) {
+            return EPSILON_NODE;
+        }
+        return flat.size() == 1 ? flat.get(0) : new RegexNode(CONCATENATION, null, flat.toArray(NO_CHILDREN));
+    }
+
+    /**
+     * x*x* = x*
+     */
+    private static void appendToSequence(List<RegexNode> flat, RegexNode element) {
+        if (element.kind == STAR && !flat.isEmpty() && element.equals(flat.get(flat.size() - 1))) {
+            return;
+        }
+        flat.add(element);
+    }
+
+    /**
+     * Return the node of the alternation of alternatives (their order does not change the language)
+     * Throws IllegalArgumentException if alternatives is empty
+     * Algorithm:
+     *  flatten nested alternations and drop duplicate alternatives and ∅
+     *  if ε is an alternative, or x? is (which is replaced by x), then drop ε and return (alternation of the others)?
+     *  group the alternatives by the first element of their sequence (an alternative that is not a concatenation is a
+     *  sequence of one element)
+     *  merge every single symbol alternative into one class
+     *  for each group of two or more alternatives  do
+     *      p = longest common prefix of the group
+     *      R = the rest of every alternative of the group after p
+     *      replace the group by p(alternation of the non empty sequences of R), made optional if R contains ε
+     *  end
+     *  sort the alternatives (see ORDER)
+     */
+    public static RegexNode alternate(Collection<RegexNode> alternatives) throws IllegalArgumentException {
+        if (alternatives.isEmpty()) {
+            throw new IllegalArgumentException("An alternation needs at least one operand");
+        }
+        if (alternatives.size() == 1) {
+            return alternatives.iterator().next();
+        }
+        Set<RegexNode> unique = new LinkedHashSet<>();
+        boolean epsilon = false;
+        for (RegexNode alternative : alternatives) {
+            if (alternative.kind == EMPTY) {
+                continue;
+            }
+            if (alternative.kind == OPTIONAL) {
+                epsilon = true;
+                alternative = alternative.children[0];
+            }
+            if (alternative.kind == EPSILON) {
+                epsilon = true;
+            } else if (alternative.kind == ALTERNATION) {
+                unique.addAll(Arrays.asList(alternative.children));
+            } else {
+                unique.add(alternative);
+            }
+        }
+        if (unique.isEmpty()) {
+            return epsilon ? EPSILON_NODE : EMPTY_NODE;
+        }
+        if (epsilon) {
+            return optional(alternate(unique));
+        }
+        List<RegexNode> merged = new ArrayList<>(unique.size());
+        int symbolsAt = -1;
+        char[] ranges = new char[16];
+        int length = 0;
+        for (RegexNode alternative : unique) {
+            if (alternative.kind != SYMBOLS) {
+                merged.add(alternative);
+                continue;
+            }
+            if (symbolsAt < 0) {
+                symbolsAt = merged.size();
+                merged.add(alternative);
+            }
+            char[] more = alternative.symbols.getRanges();
+            if (length + more.length > ranges.length) {
+                ranges = Arrays.copyOf(ranges, Math.max(2 * ranges.length, length + more.length));
+            }
+            System.arraycopy(more, 0, ranges, length, more.length);
+            length += more.length;
+        }
+        if (symbolsAt >= 0) {
+            merged.set(symbolsAt, symbols(CharClass.ofRanges(ranges, length)));
+        }
+
+        Map<RegexNode, List<RegexNode>> groups = new LinkedHashMap<>();
+        for (RegexNode alternative : merged) {
+            groups.computeIfAbsent(alternative.sequence()[0], first -> new ArrayList<>()).add(alternative);
+        }
+        List<RegexNode> result = new ArrayList<>(groups.size());
+        for (List<RegexNode> group : groups.values()) {
+            result.add(group.size() == 1 ? group.get(0) : factor(group));
+        }
+        result.sort(ORDER);
+        return result.size() == 1 ? result.get(0) : new RegexNode(ALTERNATION, null, result.toArray(NO_CHILDREN));
+    }
+
+    /**
+     * Return p(alternation of the rests)? for a group of distinct alternatives that start with the same element, where p
+     * is their longest common prefix
+     */
+    private static RegexNode factor(List<RegexNode> group) {
+        RegexNode[] first = group.get(0).sequence();
+        int prefix = first.length;
+        for (RegexNode alternative : group) {
+            RegexNode[] sequence = alternative.sequence();
+            int common = 0;
+            while (common < prefix && common < sequence.length && sequence[common].equals(first[common])) {
+                common++;
+            }
+            prefix = common;
+        }
+        List<RegexNode> rests = new ArrayList<>(group.size());
+        boolean empty = false;
+        for (RegexNode alternative : group) {
+            RegexNode[] sequence = alternative.sequence();
+            if (sequence.length == prefix) {
+                empty = true;
+            } else {
+                rests.add(concatenate(Arrays.asList(sequence).subList(prefix, sequence.length)));
+            }
+        }
+        RegexNode rest = alternate(rests);
+        List<RegexNode> result = new ArrayList<>(Arrays.asList(first).subList(0, prefix));
+        result.add(empty ? optional(rest) : rest);
+        return concatenate(result);
+    }
+
+    /**
+     * Return the elements of this node as a concatenation: its children if it is one, otherwise this node alone
+     */
+    private RegexNode[] sequence() {
+        return kind == CONCATENATION ? children : new RegexNode[]{this};
+    }
+
+    /**
+     * Return the simplified tree of a postfix expression (see Regex.infixToPostfix), which is not consumed
+     * Operands of the binary operators are kept pending in lists while a chain of the same operator is read, so a chain
+     * of n concatenations (or alternations) is simplified once as a whole instead of n times
+     * Throws EmptyStackException if postfix is not a valid postfix expression
+     */
+    public static RegexNode fromPostfix(Queue<RegexToken> postfix) throws EmptyStackException {
+        Deque<Operand> stack = new ArrayDeque<>();
+        for (RegexToken token : postfix) {
+            if (!token.isOperator()) {
+                stack.push(new Operand(symbols(token.getSymbols())));
+                continue;
+            }
+            char operator = token.getOperator();
+            if (Regex.isUnary(operator)) {
+                RegexNode operand = pop(stack).toNode();
+                stack.push(new Operand(operator == '*' ? star(operand) : operator == '+' ? plus(operand) : optional(operand)));
+                continue;
+            }
+            Operand second = pop(stack);
+            Operand first = pop(stack);
+            if (first.operator == operator) {
+                first.append(second);
+                stack.push(first);
+            } else if (second.operator == operator) {
+                second.pending.addFirst(first.toNode());
+                stack.push(second);
+            } else {
+                Operand chain = new Operand(operator);
+                chain.append(first);
+                chain.append(second);
+                stack.push(chain);
+            }
+        }
+        return pop(stack).toNode();
+    }
+
+    private static Operand pop(Deque<Operand> stack) throws EmptyStackException {
+        if (stack.isEmpty()) {
+            throw new EmptyStackException();
+        }
+        return stack.pop();
+    }
+
+    /**
+     * An operand on the stack of fromPostfix: either a node, or the pending operands of a chain of '.' or '|'
+     */
+    private static final class Operand {
+        private final char operator;
+        private final RegexNode node;
+        private final ArrayDeque<RegexNode> pending;
+
+        Operand(RegexNode node) {
+            this.operator = '\0';
+            this.node = node;
+            this.pending = null;
+        }
+
+        Operand(char operator) {
+            this.operator = operator;
+            this.node = null;
+            this.pending = new ArrayDeque<>();
+        }
+
+        void append(Operand operand) {
+            if (operand.operator == operator) {
+                pending.addAll(operand.pending);
+            } else {
+                pending.addLast(operand.toNode());
+            }
+        }
+
+        RegexNode toNode() {
+            if (node != null) {
+                return node;
+            }
+            return operator == '.' ? concatenate(pending) : alternate(pending);
+        }
+    }
+
+    /**
+     * Return the postfix expression of this tree, in the form read by Thompson.postfixToNFA
+     * The tree is walked with an explicit stack: a node with children is on the stack with the index of its next child
+     * Throws IllegalStateException if this tree is ∅ or ε, which have no postfix expression
+     */
+    public Queue<RegexToken> toPostfix() throws IllegalStateException {
+        if (kind == EMPTY || kind == EPSILON) {
+            throw new IllegalStateException("∅ and ε have no postfix expression");
+        }
+        Queue<RegexToken> postfix = new ArrayDeque<>(size * 2);
+        RegexNode[] nodes = new RegexNode[16];
+        int[] next = new int[16];
+        int top = 0;
+        nodes[top++] = this;
+        while (top > 0) {
+            RegexNode node = nodes[top - 1];
+            if (node.kind == SYMBOLS) {
+                char[] ranges = node.symbols.getRanges();
+                postfix.add(ranges.length == 2 && ranges[0] == ranges[1] ? RegexToken.symbol(ranges[0]) : RegexToken.symbols(node.symbols));
+                top--;
+                continue;
+            }
+            int child = next[top - 1]++;
+            boolean binary = node.kind == CONCATENATION || node.kind == ALTERNATION;
+            if (binary && child >= 2) {
+                postfix.add(RegexToken.operator(node.operator()));
+            }
+            if (child == node.children.length) {
+                if (!binary) {
+                    postfix.add(RegexToken.operator(node.operator()));
+                }
+                top--;
+                continue;
+            }
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * top);
+                next = Arrays.copyOf(next, 2 * top);
+            }
+            nodes[top] = node.children[child];
+            next[top++] = 0;
+        }
+        return postfix;
+    }
+
+    /**
+     * Return the operator of this node in a postfix expression
+     */
+    private char operator() {
+        switch (kind) {
+            case CONCATENATION:
+                return '.';
+            case ALTERNATION:
+                return '|';
+            case STAR:
+                return '*';
+            case PLUS:
+                return '+';
+            case OPTIONAL:
+                return '?';
+            default:
+                return '\0';
+        }
+    }
+
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * Return the input symbols of a SYMBOLS node, or null
+     */
+    public CharClass getSymbols() {
+        return symbols;
+    }
+
+    public int getChildCount() {
+        return children.length;
+    }
+
+    public RegexNode getChild(int i) {
+        return children[i];
+    }
+
+    /**
+     * Return true if the language of this node contains the empty string
+     */
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /**
+     * Return the number of nodes of this tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Structural equality, compared with an explicit stack so deep trees do not overflow the call stack
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RegexNode)) {
+            return false;
+        }
+        Deque<RegexNode> pairs = new ArrayDeque<>();
+        pairs.push(this);
+        pairs.push((RegexNode) o);
+        while (!pairs.isEmpty()) {
+            RegexNode b = pairs.pop();
+            RegexNode a = pairs.pop();
+            if (a == b) {
+                continue;
+            }
+            if (a.hash != b.hash || a.size != b.size || a.kind != b.kind || a.children.length != b.children.length ||
+                    (a.kind == SYMBOLS && !a.symbols.equals(b.symbols))) {
+                return false;
+            }
+            for (int i = 0; i < a.children.length; i++) {
+                pairs.push(a.children[i]);
+                pairs.push(b.children[i]);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Compare two nodes: by hash code, then by size, then structurally in pre order (kind, symbols, number of
+     * children) with an explicit stack. Returns 0 if and only if a and b are equal
+     */
+    private static int compare(RegexNode a, RegexNode b) {
+        if (a.hash != b.hash) {
+            return Integer.compare(a.hash, b.hash);
+        }
+        if (a.size != b.size) {
+            return Integer.compare(a.size, b.size);
+        }
+        Deque<RegexNode> pairs = new ArrayDeque<>();
+        pairs.push(a);
+        pairs.push(b);
+        while (!pairs.isEmpty()) {
+            RegexNode y = pairs.pop();
+            RegexNode x = pairs.pop();
+            if (x == y) {
+                continue;
+            }
+            if (x.kind != y.kind) {
+                return Integer.compare(x.kind, y.kind);
+            }
+            if (x.children.length != y.children.length) {
+                return Integer.compare(x.children.length, y.children.length);
+            }
+            if (x.kind == SYMBOLS && !x.symbols.equals(y.symbols)) {
+                char[] xRanges = x.symbols.getRanges();
+                char[] yRanges = y.symbols.getRanges();
+                for (int i = 0; i < Math.min(xRanges.length, yRanges.length); i++) {
+                    if (xRanges[i] != yRanges[i]) {
+                        return Character.compare(xRanges[i], yRanges[i]);
+                    }
+                }
+                return Integer.compare(xRanges.length, yRanges.length);
+            }
+            for (int i = x.children.length - 1; i >= 0; i--) {
+                pairs.push(x.children[i]);
+                pairs.push(y.children[i]);
+            }
+        }
+        return 0;
+    }
+
+    private boolean isClosure() {
+        return kind == STAR || kind == PLUS || kind == OPTIONAL;
+    }
+
+    /**
+     * Return the infix form of this tree, with the parentheses it needs: it is a valid input of Regex.infixToPostfix
+     */
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        RegexNode[] nodes = new RegexNode[16];
+        int[] next = new int[16];
+        boolean[] parenthesized = new boolean[16];
+        int top = 0;
+        nodes[top++] = this;
+        while (top > 0) {
+            RegexNode node = nodes[top - 1];
+            int child = next[top - 1]++;
+            if (child == 0 && parenthesized[top - 1]) {
+                stringBuilder.append('(');
+            }
+            if (node.kind == SYMBOLS) {
+                stringBuilder.append(node.symbols);
+            } else if (node.kind == EMPTY || node.kind == EPSILON) {
+                stringBuilder.append(node.kind == EMPTY ? '∅' : 'ε');
+            } else if (child > 0 && child < node.children.length && node.kind == ALTERNATION) {
+                stringBuilder.append('|');
+            }
+            if (child == node.children.length) {
+                if (node.isClosure()) {
+                    stringBuilder.append(node.operator());
+                }
+                if (parenthesized[top - 1]) {
+                    stringBuilder.append(')');
+                }
+                top--;
+                continue;
+            }
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * top);
+                next = Arrays.copyOf(next, 2 * top);
+                parenthesized = Arrays.copyOf(parenthesized, 2 * top);
+            }
+            RegexNode operand = node.children[child];
+            nodes[top] = operand;
+            next[top] = 0;
+            parenthesized[top++] = operand.kind == ALTERNATION ? node.kind != ALTERNATION :
+                    operand.kind == CONCATENATION && node.isClosure();
+        }
+        return stringBuilder.toString();
+    }
+}
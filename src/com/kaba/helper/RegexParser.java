@@ -0,0 +1,288 @@
+package com.kaba.helper;
+
+import java.util.*;
+
+/**
+ * Single pass regular expression parser (see Regex.infixToPostfix): validation, insertion of the implicit concatenation
+ * operator and the shunting yard are done together in one left to right scan of a char[], so parsing is linear in the
+ * length of the expression
+ * The parser is an operator precedence parser with explicit primitive stacks rather than recursive descent, so the
+ * nesting depth of groups is only bounded by the heap: pending binary operators and '(' are kept in a char[] stack,
+ * and the position of every '(' in a parallel int[] stack so an unclosed group is reported where it was opened
+ * Whitespace outside bracketed classes is skipped as it is read (the same characters Regex.normalize drops), and error
+ * positions are offsets in the expression as it was given. Operators and ASCII literals are shared RegexTokens, so a
+ * typical expression allocates little besides its output queue
+ */
+final class RegexParser {
+    private static final CharClass[] SHORTHANDS = new CharClass[128];
+
+    static {
+        char[][] ranges = {{'0', '9'}, {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'}, {'\t', '\r', ' ', ' '}};
+        char[] names = {'d', 'w', 's'};
+        for (int i = 0; i < names.length; i++) {
+            CharClass symbols = CharClass.ofRanges(ranges[i], ranges[i].length);
+            SHORTHANDS[names[i]] = symbols;
+            SHORTHANDS[Character.toUpperCase(names[i])] = symbols.negate();
+        }
+    }
+
+    private final char[] input;
+    private int position;
+    private char[] operators = new char[16];
+    private int[] operatorPositions = new int[16];
+    private int top;
+    private final Queue<RegexToken> postFix = new ArrayDeque<>();
+
+    private RegexParser(char[] input) {
+        this.input = input;
+    }
+
+    /**
+     * Return the postfix expression of input
+     * Throws IllegalArgumentException, with the position of the offending character, if input is not well formed
+     */
+    static Queue<RegexToken> parse(String input) throws IllegalArgumentException {
+        return new RegexParser(input.toCharArray()).parse();
+    }
+
+    /**
+     * Algorithm:
+     *  expect an operand
+     *  for each token (skipping whitespace)  do
+     *      '(':        if an operand was not expected then push '.' (implicit concatenation); push '('; expect an operand
+     *      ')':        an operand must not be expected; pop operators to the output until '(' and drop the '('
+     *      unary o:    an operand must not be expected; output o (unary operators bind tightest and are postfix)
+     *      binary o:   an operand must not be expected; pop operators of higher or equal precedence to the output
+     *                  (both binary operators are left associative); push o; expect an operand
+     *      symbol:     if an operand was not expected then push '.'; output the symbol
+     *  end
+     *  an operand must not be expected; pop the remaining operators to the output, a '(' is a group never closed
+     */
+    private Queue<RegexToken> parse() throws IllegalArgumentException {
+        boolean expectOperand = true;
+        boolean empty = true;
+        while (position < input.length) {
+            int at = position;
+            char token = input[at];
+            if (Character.isWhitespace(token)) {
+                position++;
+                continue;
+            }
+            empty = false;
+            if (token == '(') {
+                if (!expectOperand) {
+                    pushBinary('.', at);
+                }
+                push('(', at);
+                expectOperand = true;
+                position++;
+            } else if (token == ')') {
+                if (expectOperand) {
+                    throw invalid("Missing operand before ')'", at);
+                }
+                while (top > 0 && operators[top - 1] != '(') {
+                    postFix.add(RegexToken.operator(operators[--top]));
+                }
+                if (top == 0) {
+                    throw invalid("Missing braces: no '(' for ')'", at);
+                }
+                top--;
+                position++;
+            } else if (Regex.isOperator(token)) {
+                if (expectOperand) {
+                    throw invalid("Missing operand before '" + token + "'", at);
+                }
+                if (Regex.isUnary(token)) {
+                    postFix.add(RegexToken.operator(token));
+                } else {
+                    pushBinary(token, at);
+                    expectOperand = true;
+                }
+                position++;
+            } else {
+                if (!expectOperand) {
+                    pushBinary('.', at);
+                }
+                postFix.add(parseSymbols());
+                expectOperand = false;
+            }
+        }
+        if (empty) {
+            throw new IllegalArgumentException("You entered an invalid regular expression: Empty regular expression");
+        }
+        if (expectOperand) {
+            throw invalid("Missing operand at the end of the expression", input.length);
+        }
+        while (top > 0) {
+            if (operators[--top] == '(') {
+                throw invalid("Missing braces: '(' is never closed", operatorPositions[top]);
+            }
+            postFix.add(RegexToken.operator(operators[top]));
+        }
+        return postFix;
+    }
+
+    /**
+     * Pop the operators of higher or equal precedence than the binary operator token to the output and push token
+     */
+    private void pushBinary(char token, int at) {
+        int precedence = precedence(token);
+        while (top > 0 && precedence <= precedence(operators[top - 1])) {
+            postFix.add(RegexToken.operator(operators[--top]));
+        }
+        push(token, at);
+    }
+
+    private void push(char token, int at) {
+        if (top == operators.length) {
+            operators = Arrays.copyOf(operators, 2 * top);
+            operatorPositions = Arrays.copyOf(operatorPositions, 2 * top);
+        }
+        operators[top] = token;
+        operatorPositions[top++] = at;
+    }
+
+    /**
+     * Return the precedence level of a binary operator on the stack: concatenation '.' binds tighter than alternation
+     * '|', and '(' is below both so that it is never popped by an operator
+     */
+    private static int precedence(char token) {
+        switch (token) {
+            case '.':
+                return 2;
+            case '|':
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Parse one input symbol at position: a bracketed class, an escape or a literal character
+     * position is advanced past the symbol
+     */
+    private RegexToken parseSymbols() throws IllegalArgumentException {
+        char token = input[position];
+        if (token != '[' && token != '\\') {
+            if (token == State.EPSILON) {
+                throw invalid("U+FFFF is reserved for ε", position);
+            }
+            position++;
+            return RegexToken.symbol(token);
+        }
+        if (token != '[') {
+            char[] ranges = new char[16];
+            int length = parseClassItem(ranges, 0);
+            return RegexToken.symbols(CharClass.ofRanges(ranges, length));
+        }
+        int open = position++;
+        boolean negated = position < input.length && input[position] == '^';
+        if (negated) {
+            position++;
+        }
+        char[] ranges = new char[16];
+        int length = 0;
+        while (true) {
+            if (position >= input.length) {
+                throw invalid("Missing ']' for the class opened", open);
+            }
+            if (input[position] == ']') {
+                position++;
+                break;
+            }
+            if (length + 32 > ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            }
+            int itemStart = position;
+            int itemLength = parseClassItem(ranges, length);
+            boolean single = itemLength == length + 2 && ranges[length] == ranges[length + 1];
+            if (single && position + 1 < input.length && input[position] == '-' && input[position + 1] != ']') {
+                position++;
+                int hiStart = position;
+                int hiLength = parseClassItem(ranges, itemLength);
+                if (hiLength != itemLength + 2 || ranges[itemLength] != ranges[itemLength + 1]) {
+                    throw invalid("Invalid range end", hiStart);
+                }
+                if (ranges[itemLength] < ranges[length]) {
+                    throw invalid("Invalid range: end is before start", itemStart);
+                }
+                ranges[length + 1] = ranges[itemLength];
+            }
+            length = itemLength;
+        }
+        CharClass symbols = CharClass.ofRanges(ranges, length);
+        if (negated) {
+            symbols = symbols.negate();
+        }
+        if (symbols.isEmpty()) {
+            throw invalid("Empty class", open);
+        }
+        return RegexToken.symbols(symbols);
+    }
+
+    /**
+     * Parse a literal character or an escape at position into ranges (from index length, which must leave room for 10
+     * chars) and return the new length
+     * Escapes: \n, \t, \r, \f, a backslash and 'u' followed by four hex digits, the classes \d, \w, \s (and their
+     * complements \D, \W, \S) and a backslash followed by any other character, which stands for that character
+     * (e.g. \* \. \( \[)
+     */
+    private int parseClassItem(char[] ranges, int length) throws IllegalArgumentException {
+        int at = position;
+        char token = input[position++];
+        if (token != '\\') {
+            return addSymbol(token, at, ranges, length);
+        }
+        if (position >= input.length) {
+            throw invalid("Incomplete escape", at);
+        }
+        char escaped = input[position++];
+        switch (escaped) {
+            case 'n':
+                return addSymbol('\n', at, ranges, length);
+            case 't':
+                return addSymbol('\t', at, ranges, length);
+            case 'r':
+                return addSymbol('\r', at, ranges, length);
+            case 'f':
+                return addSymbol('\f', at, ranges, length);
+            case 'u':
+                if (position + 4 > input.length) {
+                    throw invalid("Incomplete unicode escape", at);
+                }
+                int symbol = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(input[position++], 16);
+                    if (digit < 0) {
+                        throw invalid("Invalid unicode escape", at);
+                    }
+                    symbol = symbol * 16 + digit;
+                }
+                return addSymbol((char) symbol, at, ranges, length);
+            case 'd':
+            case 'D':
+            case 'w':
+            case 'W':
+            case 's':
+            case 'S':
+                char[] symbolRanges = SHORTHANDS[escaped].getRanges();
+                System.arraycopy(symbolRanges, 0, ranges, length, symbolRanges.length);
+                return length + symbolRanges.length;
+            default:
+                return addSymbol(escaped, at, ranges, length);
+        }
+    }
+
+    private static int addSymbol(char symbol, int at, char[] ranges, int length) throws IllegalArgumentException {
+        if (symbol == State.EPSILON) {
+            throw invalid("U+FFFF is reserved for ε", at);
+        }
+        ranges[length] = symbol;
+        ranges[length + 1] = symbol;
+        return length + 2;
+    }
+
+    static IllegalArgumentException invalid(String message, int position) {
+        return new IllegalArgumentException("You entered an invalid regular expression: " + message + " at position " + position);
+    }
+}
@@ -0,0 +1,65 @@
+package com.kaba.helper;
+
+/**
+ * A token of a postfix regular expression: either an operator (*, +, ?, ., |) or an input symbol (a CharClass)
+ * Produced by Regex.infixToPostfix and consumed by the Thompson algorithm
+ */
+public class RegexToken {
+    private static final RegexToken[] OPERATORS = new RegexToken[128];
+    private static final RegexToken[] LITERALS = new RegexToken[128];
+
+    static {
+        for (char operator : new char[]{'*', '+', '?', '.', '|', '(', ')'}) {
+            OPERATORS[operator] = new RegexToken(operator, null);
+        }
+        for (char literal = 0; literal < LITERALS.length; literal++) {
+            LITERALS[literal] = new RegexToken('\0', CharClass.of(literal));
+        }
+    }
+
+    private final char operator;
+    private final CharClass symbols;
+
+    private RegexToken(char operator, CharClass symbols) {
+        this.operator = operator;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Tokens are immutable, so the tokens of the operators are shared
+     */
+    public static RegexToken operator(char operator) {
+        if (operator < OPERATORS.length && OPERATORS[operator] != null) {
+            return OPERATORS[operator];
+        }
+        return new RegexToken(operator, null);
+    }
+
+    public static RegexToken symbols(CharClass symbols) {
+        return new RegexToken('\0', symbols);
+    }
+
+    /**
+     * Return the token of the single character symbol: the tokens of ASCII characters are shared
+     */
+    public static RegexToken symbol(char symbol) {
+        return symbol < LITERALS.length ? LITERALS[symbol] : new RegexToken('\0', CharClass.of(symbol));
+    }
+
+    public boolean isOperator() {
+        return symbols == null;
+    }
+
+    public char getOperator() {
+        return operator;
+    }
+
+    public CharClass getSymbols() {
+        return symbols;
+    }
+
+    @Override
+    public String toString() {
+        return isOperator() ? Character.toString(operator) : symbols.toString();
+    }
+}
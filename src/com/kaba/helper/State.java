@@ -4,75 +4,180 @@ import java.util.*;
 
 /**
  * State defines each state in the NFA/Fragment: Created by Kaba Yusuf on 9/30/2016.
- * Each state has a char label and a HashMap of transitions linking an input alphabet to a list of States that it transitions
- * to via that alphabet
+ * Each state has a unique int id, a display label and its transitions: a list of edges (range of input symbols, target
+ * State). An edge via [a-z] or [^"] is one edge however many characters its range holds; ε edges are the range
+ * [EPSILON, EPSILON]
+ * Edges are stored in parallel arrays without boxing, and the edges whose range starts at the same symbol are chained
+ * (nextEdge) from the first of them, which a CharIntMap finds by symbol. Walking the ε targets of a state therefore costs
+ * one map lookup plus one step per target, and retargeting edges (see moveTransitionsFromFinalTo) allocates nothing
  */
 public class State {
-    private char label;
-    private HashMap<Character, List<State>> transitions;
-    private static int labelCount = 65;
+    /**
+     * Key of ε transitions: U+FFFF is a Unicode noncharacter, so it can never clash with an input symbol (see CharClass)
+     */
+    public static final char EPSILON = '\uFFFF';
+    public static final int NO_EDGE = -1;
+
+    private String label;
+    private final int id;
+    private final CharIntMap firstEdge;
+    private char[] edgeSymbols;
+    private char[] edgeLastSymbols;
+    private State[] edgeTargets;
+    private int[] nextEdge;
+    private int edgeCount;
+    /**
+     * Next state in the state list of the Fragment this state belongs to (see Fragment)
+     */
+    State nextState;
 
-    State(char label) {
+    State(String label, CompilationContext context) {
         this.label = label;
-        transitions = new HashMap<>();
+        this.id = context.nextStateId();
+        this.firstEdge = new CharIntMap();
+        this.edgeSymbols = new char[2];
+        this.edgeLastSymbols = new char[2];
+        this.edgeTargets = new State[2];
+        this.nextEdge = new int[2];
+    }
+
+    /**
+     * Unique integer id of this state within the NFA being built (handed out by its CompilationContext): ids are never
+     * reused, so they can be used to build canonical (order independent) keys for sets of states e.g. in SubsetConstruction
+     */
+    public int getId() {
+        return id;
     }
 
-    char getLabel() {
+    public String getLabel() {
         return label;
     }
 
     /**
-     * Apart from the start and final states, State labels are set using a static (class-wide) variable: labelCount
-     * to determine what character label is available and avoid special special/reserved characters such as 'S', '^'
+     * Apart from the start and final states ('S' and 'F'), a State is labelled by its id, which is unique so the number
+     * of states is not limited by the number of available characters
      */
     void setLabel() {
-        if(91 <= labelCount && labelCount <= 96) {
-            labelCount = 97;
-        }
-        if(labelCount == 70 || labelCount == 83){
-            labelCount++;
-        }
-        this.label = (char)labelCount;
-        labelCount++;
+        this.label = Integer.toString(id);
+    }
+
+    /**
+     * Returns the number of edges (transitions) of this state: edges are numbered 0 .. getEdgeCount() - 1
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the first symbol of the range of edge (EPSILON for an ε edge)
+     */
+    public char getEdgeSymbol(int edge) {
+        return edgeSymbols[edge];
+    }
+
+    /**
+     * Returns the last symbol of the range of edge (EPSILON for an ε edge)
+     */
+    public char getEdgeLastSymbol(int edge) {
+        return edgeLastSymbols[edge];
+    }
+
+    public State getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    /**
+     * Return the first edge whose range starts at symbol, or NO_EDGE: the others follow through getNextEdge, in the order
+     * they were added
+     */
+    public int getFirstEdge(char symbol) {
+        int edge = firstEdge.get(symbol);
+        return edge == CharIntMap.NONE ? NO_EDGE : edge;
     }
 
-    HashMap<Character, List<State>> getTransitions() {
-        return transitions;
+    /**
+     * Return the edge after edge whose range starts at the same symbol, or NO_EDGE
+     */
+    public int getNextEdge(int edge) {
+        return nextEdge[edge];
     }
 
-    void setTransitions(HashMap<Character, List<State>> transitions) {
-        this.transitions = transitions;
+    /**
+     * Return the symbols the ranges of the edges of this state start at (EPSILON included), in ascending order
+     */
+    public char[] getSymbols() {
+        return firstEdge.keys();
     }
 
     /**
-     * Given a HashMap of transitions, add the updates to the existing transitions
-     * If the input character already exists, update the its list of states
-     * If the input character does not exist, add a new entry to the transitions
+     * Return true if the range of an edge of this state contains symbol
      */
-    void updateTransitions(HashMap<Character, List<State>> updates){
-        for (Map.Entry<Character, List<State>> entry : updates.entrySet()) {
-            if(this.getTransitions().containsKey(entry.getKey())) {
-                List<State> states = getTransitions().get(entry.getKey());
-                states.addAll(entry.getValue());
-                getTransitions().replace(entry.getKey(), states);
-            } else {
-                this.getTransitions().put(entry.getKey(), entry.getValue());
+    public boolean hasTransitionsVia(char symbol) {
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (edgeSymbols[edge] <= symbol && symbol <= edgeLastSymbols[edge]) {
+                return true;
             }
         }
+        return false;
+    }
+
+    /**
+     * Add a transition to target via symbol, after the existing transitions via symbol
+     */
+    void addTransition(char symbol, State target) {
+        addTransition(symbol, symbol, target);
+    }
+
+    /**
+     * Add a transition to target via every character of symbols: one edge per range of symbols
+     */
+    void addTransitions(CharClass symbols, State target) {
+        char[] ranges = symbols.getRanges();
+        for (int i = 0; i < ranges.length; i += 2) {
+            addTransition(ranges[i], ranges[i + 1], target);
+        }
+    }
+
+    /**
+     * Add a transition to target via the range [first, last], after the existing edges whose range starts at first
+     */
+    private void addTransition(char first, char last, State target) {
+        if (edgeCount == edgeTargets.length) {
+            int capacity = 2 * edgeCount;
+            edgeSymbols = Arrays.copyOf(edgeSymbols, capacity);
+            edgeLastSymbols = Arrays.copyOf(edgeLastSymbols, capacity);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            nextEdge = Arrays.copyOf(nextEdge, capacity);
+        }
+        int edge = edgeCount++;
+        edgeSymbols[edge] = first;
+        edgeLastSymbols[edge] = last;
+        edgeTargets[edge] = target;
+        nextEdge[edge] = NO_EDGE;
+        int previous = getFirstEdge(first);
+        if (previous == NO_EDGE) {
+            firstEdge.put(first, edge);
+            return;
+        }
+        while (nextEdge[previous] != NO_EDGE) {
+            previous = nextEdge[previous];
+        }
+        nextEdge[previous] = edge;
     }
 
     /**
      * Return formatted String for transitions to be used in the toString method
      */
     private String printTransitions(){
-        if(transitions.isEmpty()){
+        if(edgeCount == 0){
             return "Empty";
         } else {
             StringBuilder stringBuilder = new StringBuilder();
-            for (Map.Entry<Character, List<State>> entry : transitions.entrySet()) {
-                stringBuilder.append(entry.getKey()).append(": ");
-                for(State state : entry.getValue()) {
-                    stringBuilder.append(state.getLabel()).append(", ");
+            for (char symbol : getSymbols()) {
+                for (int edge = getFirstEdge(symbol); edge != NO_EDGE; edge = nextEdge[edge]) {
+                    stringBuilder.append(symbol == EPSILON ? "\u03B5" :
+                            CharClass.ofRanges(new char[]{symbol, edgeLastSymbols[edge]}, 2).toString())
+                            .append(": ").append(edgeTargets[edge].getLabel()).append(", ");
                 }
             }
             return stringBuilder.toString();
@@ -80,38 +185,33 @@ public class State {
     }
 
     /**
-     * Get transition entries that move to finalState and link them to startState instead
+     * Make the edges from .. to - 1 that move to finalState move to startState instead
      * Used in concatenation to merge the final states of the first fragment to the start state of the second fragment
+     * Edges that were removed since (see removeAll) or that lead elsewhere are left alone
      */
-    void moveTransitionsFromFinalTo(State startState, State finalState) {
-        transitions.entrySet().stream().filter(entry -> entry.getValue().contains(finalState)).forEach(entry -> {
-            List<State> states = entry.getValue();
-            states.add(startState);
-            states.remove(finalState);
-            transitions.replace(entry.getKey(), entry.getValue(), states);
-        });
+    void retarget(int from, int to, State finalState, State startState) {
+        for (int edge = from, end = Math.min(to, edgeCount); edge < end; edge++) {
+            if (edgeTargets[edge] == finalState) {
+                edgeTargets[edge] = startState;
+            }
+        }
     }
 
     /**
      * empty contents of transitions
      */
     public void removeAll() {
-        transitions.clear();
+        firstEdge.clear();
+        Arrays.fill(edgeTargets, 0, edgeCount, null);
+        edgeCount = 0;
     }
 
     /**
      * return true if this state contains a transition to state via character token
      */
-    boolean containsTransitionTo(State state, Character token){
-        return (this.getTransitions().containsKey(token) && this.getTransitions().get(token) == state);
-    }
-
-    /**
-     * return true if this state contains a transition to state via ANY input character
-     */
-    boolean containsTransitionTo(State state){
-        for (Map.Entry<Character, List<State>> entry : transitions.entrySet()) {
-            if(entry.getValue().contains(state)){
+    boolean containsTransitionTo(State state, char token){
+        for (int edge = getFirstEdge(token); edge != NO_EDGE; edge = nextEdge[edge]) {
+            if (edgeTargets[edge] == state) {
                 return true;
             }
         }
@@ -125,38 +225,38 @@ public class State {
 
     /**
      * Return a list of States reachable from this state via ε
-     * This method uses recursion as the ε-closure of a state that contains a transition
-     * to another state via ε is just a combination of that state and the state's ε-closure
-     * Used in the SubsetConstruction algorithm
+     * The ε-closure is collected with an explicit worklist and a visited set, so states shared by several ε paths are
+     * listed once and ε-cycles terminate. SubsetConstruction uses the cached closures of EpsilonClosure instead
      */
     public LinkedList<State> getEClosure() {
         LinkedList<State> eClosure = new LinkedList<>();
-        eClosure.add(this);
-        if(!this.getTransitions().containsKey('\u03B5')){
-            return eClosure;
-        }
-        for(State state : this.getTransitions().get('\u03B5')){
-            eClosure.addAll(state.getEClosure());
+        Set<State> visited = new HashSet<>();
+        Deque<State> workList = new ArrayDeque<>();
+        visited.add(this);
+        workList.push(this);
+        while (!workList.isEmpty()) {
+            State current = workList.pop();
+            eClosure.add(current);
+            for (int edge = current.getFirstEdge(EPSILON); edge != NO_EDGE; edge = current.nextEdge[edge]) {
+                if (visited.add(current.edgeTargets[edge])) {
+                    workList.push(current.edgeTargets[edge]);
+                }
+            }
         }
         return eClosure;
     }
 
     /**
-     * Similar method to getEClosure but gets only the states that can be directly visited via input from this state
-     * Used in the SubsetConstruction algorithm
+     * Similar method to getEClosure but gets only the states that can be directly visited via input from this state:
+     * the targets of the edges whose range contains input
      */
     public LinkedList<State> getStatesTransitionViaInput(char input) {
         LinkedList<State> statesTransition = new LinkedList<>();
-        if(!this.getTransitions().containsKey(input)){
-            return statesTransition;
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (edgeSymbols[edge] <= input && input <= edgeLastSymbols[edge]) {
+                statesTransition.add(edgeTargets[edge]);
+            }
         }
-        statesTransition.addAll(this.getTransitions().get(input));
         return statesTransition;
     }
-    /**
-     * Reset label after each NFA is generated!
-     */
-    public static void resetLabelCount(){
-        labelCount = 65;
-    }
 }
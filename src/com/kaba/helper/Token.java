@@ -0,0 +1,54 @@
+package com.kaba.helper;
+
+/**
+ * A token produced by a Lexer: the rule that matched (its index in the specification and its name) and the lexeme,
+ * which spans input[start .. end)
+ */
+public class Token {
+    private final String name;
+    private final int rule;
+    private final int start;
+    private final int end;
+    private final String text;
+
+    public Token(String name, int rule, int start, int end, String text) {
+        this.name = name;
+        this.rule = rule;
+        this.start = start;
+        this.end = end;
+        this.text = text;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Index of the rule that matched in the specification given to LexerGenerator
+     */
+    public int getRule() {
+        return rule;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "Token{" +
+                "name='" + name + '\'' +
+                ", text='" + text + '\'' +
+                ", start=" + start +
+                ", end=" + end +
+                '}';
+    }
+}
@@ -1,10 +1,7 @@
 package com.kaba.ui;
 
-import com.kaba.algorithms.SubsetConstruction;
-import com.kaba.algorithms.Thompson;
-import com.kaba.automata.DFA;
-import com.kaba.helper.Fragment;
-import com.kaba.helper.Regex;
+import com.kaba.algorithms.RegexCache;
+import com.kaba.algorithms.RegexCompiler;
 
 import javax.swing.*;
 import java.awt.*;
@@ -13,6 +10,8 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.EmptyStackException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by Yusuf on 10/11/2016
@@ -24,6 +23,8 @@ abstract class GraphWindow extends JPanel {
     private JPanel chartPanel;
     private boolean firstTimeClicked = true;
     private AppWindow appWindow;
+    private static final RegexCache cache = new RegexCache(1_000_000);
+    private final RegexCompiler compiler = new RegexCompiler(ForkJoinPool.commonPool(), cache);
 
     GraphWindow(AppWindow appWindow) {
         this.appWindow = appWindow;
@@ -96,31 +97,41 @@ abstract class GraphWindow extends JPanel {
 
     /**
      * Inner ActionHandler class that handles the creation and displaying of NFA and DFA
+     * The regex is compiled on the RegexCompiler's thread pool, the graphs are then set up back on the Swing thread
      */
     private class RunHandler implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent actionEvent) {
-            try {
-                if(inputArea.getText().trim().equals("")){
-                    JOptionPane.showMessageDialog(appWindow, "Enter a proper expression!", "Input Error!", JOptionPane.ERROR_MESSAGE);
+            if(inputArea.getText().trim().equals("")){
+                JOptionPane.showMessageDialog(appWindow, "Enter a proper expression!", "Input Error!", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            String regex = inputArea.getText();
+            compiler.compileAsync(regex).whenComplete((compiled, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    showError(error instanceof CompletionException ? error.getCause() : error);
                     return;
                 }
-                String regex = inputArea.getText();
-                Fragment NFA = Thompson.postfixToNFA(Regex.infixToPostfix(regex));
-                DFA dfa = SubsetConstruction.subsetConstruction(NFA);
-                System.out.println("GENERATED NFA:\n" + NFA);
+                System.out.println("GENERATED NFA:\n" + compiled.getNFA());
                 System.out.println("==============================================================================================================================================");
                 System.out.println("GENERATED DFA:\n");
                 System.out.println("==============================================================================================================================================");
-                System.out.println(dfa);
-                AutomataWindow.setUpNfaDfa(NFA, dfa);
+                System.out.println(compiled.getDFA());
+                AutomataWindow.setUpNfaDfa(compiled.getNFA(), compiled.getDFA());
                 AutomataWindow.setUpStrings(regex);
-            } catch (IllegalArgumentException e) {
-                JOptionPane.showMessageDialog(appWindow, e.getLocalizedMessage(), "Input Error!",JOptionPane.ERROR_MESSAGE);
-                System.out.println(e.getLocalizedMessage());
-            } catch (ArrayIndexOutOfBoundsException | EmptyStackException e) {
+            }));
+        }
+
+        private void showError(Throwable error) {
+            if (error instanceof IllegalArgumentException) {
+                JOptionPane.showMessageDialog(appWindow, error.getLocalizedMessage(), "Input Error!",JOptionPane.ERROR_MESSAGE);
+                System.out.println(error.getLocalizedMessage());
+            } else if (error instanceof ArrayIndexOutOfBoundsException || error instanceof EmptyStackException) {
                 JOptionPane.showMessageDialog(appWindow, "The expression is not properly formatted!", "Input Error!", JOptionPane.ERROR_MESSAGE);
                 System.out.println("The expression is not properly formatted.");
+            } else {
+                JOptionPane.showMessageDialog(appWindow, error.toString(), "Error!", JOptionPane.ERROR_MESSAGE);
+                error.printStackTrace();
             }
         }
     }
@@ -0,0 +1,43 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.DFAMatcher;
+import com.kaba.automata.JavaRegexOracle;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BrzozowskiTest {
+    private static int minimalStateCount(String regex, DFAConstruction construction) {
+        return Hopcroft.minimize(RegexCompiler.compileDFA(regex, construction)).getMinimizedStateCount();
+    }
+
+    /**
+     * Derivatives are kept in the normal form of RegexNode, so the states of nested closures such as ((((a)*b)*c)*d).. stay
+     * within one of the minimal DFA instead of growing with every level
+     */
+    @Test
+    public void nestedClosuresStaySmall() {
+        String regex = "a";
+        for (int depth = 0; depth < 12; depth++) {
+            regex = "(" + regex + ")*" + (char) ('b' + depth % 3);
+            int states = RegexCompiler.compileDFA(regex, DFAConstruction.BRZOZOWSKI).getStates().size();
+            assertTrue(regex + ": " + states, states <= minimalStateCount(regex, DFAConstruction.SUBSET) + 1);
+        }
+        assertEquals(1, RegexCompiler.compileDFA("((a*)*)*", DFAConstruction.BRZOZOWSKI).getStates().size());
+    }
+
+    @Test
+    public void sameMinimalDFAAsSubsetConstruction() {
+        for (String regex : new String[]{"(a|b)*abb", "(ab|ac)*d", "a(b|c*)", "(a*b*)*c?", "[^a]+a?"}) {
+            assertEquals(regex, minimalStateCount(regex, DFAConstruction.SUBSET),
+                    minimalStateCount(regex, DFAConstruction.BRZOZOWSKI));
+        }
+    }
+
+    @Test
+    public void matchesLikeJavaRegex() {
+        JavaRegexOracle.assertMatchesLikeJavaRegex("brzozowski", regex ->
+                JavaRegexOracle.of(DFAMatcher.compile(RegexCompiler.compileDFA(regex, DFAConstruction.BRZOZOWSKI))));
+    }
+}
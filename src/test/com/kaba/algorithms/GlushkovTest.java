@@ -0,0 +1,57 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.CompiledNFA;
+import com.kaba.automata.DFAMatcher;
+import com.kaba.automata.JavaRegexOracle;
+import com.kaba.helper.Fragment;
+import com.kaba.helper.Regex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GlushkovTest {
+    private static Fragment positionAutomaton(String regex) {
+        return Glushkov.postfixToNFA(Regex.simplify(Regex.infixToPostfix(regex)));
+    }
+
+    /**
+     * One state per position plus the start state, and no ε transition
+     */
+    @Test
+    public void positionAutomaton() {
+        Fragment NFA = positionAutomaton("(ab|cd)*e");
+        assertEquals(6, NFA.getStateCount());
+        CompiledNFA compiled = CompiledNFA.compile(NFA);
+        assertEquals(0, compiled.epsilonEnd(compiled.getStateCount() - 1));
+        assertEquals(1, NFA.getAcceptingStates().size());
+
+        assertEquals(3, positionAutomaton("a(b|c*)").getAcceptingStates().size());
+        assertEquals(2, positionAutomaton("(a|b)?").getAcceptingStates().size());
+    }
+
+    /**
+     * Glushkov and Thompson NFAs of the same expression have the same minimal DFA
+     */
+    @Test
+    public void sameMinimalDFAAsThompson() {
+        for (String regex : new String[]{"(a|b)*abb", "(ab|ac)*d", "a(b|c*)", "(a*b*)*c?", "[^a]+a?"}) {
+            int thompson = Hopcroft.minimize(RegexCompiler.compileDFA(regex, DFAConstruction.SUBSET))
+                    .getMinimizedStateCount();
+            int glushkov = Hopcroft.minimize(RegexCompiler.compileDFA(regex,
+                    DFAConstruction.subset(NFAConstruction.GLUSHKOV))).getMinimizedStateCount();
+            assertEquals(regex, thompson, glushkov);
+        }
+    }
+
+    @Test
+    public void subsetConstructionMatchesLikeJavaRegex() {
+        JavaRegexOracle.assertMatchesLikeJavaRegex("glushkov", regex -> JavaRegexOracle.of(DFAMatcher.compile(
+                RegexCompiler.compileDFA(regex, DFAConstruction.subset(NFAConstruction.GLUSHKOV)))));
+    }
+
+    @Test
+    public void simulationMatchesLikeJavaRegex() {
+        JavaRegexOracle.assertMatchesLikeJavaRegex("glushkov simulator", regex ->
+                JavaRegexOracle.of(RegexCompiler.compileSimulator(regex, NFAConstruction.GLUSHKOV)));
+    }
+}
@@ -0,0 +1,55 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.DFA;
+import com.kaba.automata.DFAMatcher;
+import com.kaba.automata.JavaRegexOracle;
+import com.kaba.helper.DFAState;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class HopcroftTest {
+    private static Hopcroft.Result minimize(String regex) {
+        return Hopcroft.minimize(RegexCompiler.compileDFA(regex, DFAConstruction.SUBSET));
+    }
+
+    @Test
+    public void minimalStateCounts() {
+        Hopcroft.Result result = minimize("(a|b)*abb");
+        assertEquals(5, result.getOriginalStateCount());
+        assertEquals(4, result.getMinimizedStateCount());
+        assertEquals(1, result.getStatesRemoved());
+        assertEquals(4, result.getMinimizedDFA().getStates().size());
+
+        assertEquals(8, minimize("(a|b)*a(a|b)(a|b)").getMinimizedDFA().getStates().size());
+        assertEquals(minimize("(a|b)*").getMinimizedStateCount(), minimize("(a*b*)*").getMinimizedStateCount());
+    }
+
+    @Test
+    public void minimizingTwiceChangesNothing() {
+        DFA minimized = minimize("(ab|ac)*d").getMinimizedDFA();
+        Hopcroft.Result again = Hopcroft.minimize(minimized);
+        assertEquals(0, again.getStatesRemoved());
+        assertEquals(minimized.getStates().size(), again.getMinimizedDFA().getStates().size());
+    }
+
+    /**
+     * Every state of the minimized DFA is found by its key, as the states built by SubsetConstruction are
+     */
+    @Test
+    public void minimizedStatesAreIndexed() {
+        for (String regex : new String[]{"(a|b)*abb", "(a|b)*a(a|b)(a|b)", "(ab|ac)*d"}) {
+            DFA minimized = minimize(regex).getMinimizedDFA();
+            for (DFAState state : minimized.getStates()) {
+                assertSame(regex, state, minimized.getStateFromKey(state.getKey()));
+            }
+        }
+    }
+
+    @Test
+    public void matchesLikeJavaRegex() {
+        JavaRegexOracle.assertMatchesLikeJavaRegex("hopcroft", regex ->
+                JavaRegexOracle.of(DFAMatcher.compile(minimize(regex).getMinimizedDFA())));
+    }
+}
@@ -0,0 +1,78 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.DFAMatcher;
+import com.kaba.automata.JavaRegexOracle;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LazyDFATest {
+    /**
+     * (a|b)*a(a|b)(a|b)(a|b)(a|b)(a|b)(a|b): the minimal DFA has 2^7 states
+     */
+    private static final String EXPLOSIVE = "(a|b)*a(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)";
+
+    private static String randomInput(Random random, int length) {
+        char[] input = new char[length];
+        for (int i = 0; i < length; i++) {
+            input[i] = random.nextBoolean() ? 'a' : 'b';
+        }
+        return new String(input);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsRoomForTwoStates() {
+        RegexCompiler.compileLazy("a", 1);
+    }
+
+    @Test
+    public void cachedStatesAreReused() {
+        LazyDFA lazyDFA = RegexCompiler.compileLazy(EXPLOSIVE, LazyDFA.DEFAULT_MAX_STATES);
+        String input = randomInput(new Random(11), 10_000);
+        boolean matches = lazyDFA.matches(input);
+        long built = lazyDFA.getStatesBuilt();
+        assertEquals(matches, lazyDFA.matches(input));
+        assertEquals(built, lazyDFA.getStatesBuilt());
+        int fullStates = DFAMatcher.compile(RegexCompiler.compileDFA(EXPLOSIVE, DFAConstruction.SUBSET)).getStateCount();
+        assertTrue(lazyDFA.getStateCount() <= fullStates);
+        assertEquals(0, lazyDFA.getFlushes());
+    }
+
+    /**
+     * With room for 8 of the (at least) 128 states the cache thrashes: it is flushed, then the scans fall back to NFA
+     * simulation, and the answers stay those of the full DFA
+     */
+    @Test
+    public void boundedCacheFlushesAndFallsBack() {
+        DFAMatcher full = DFAMatcher.compile(RegexCompiler.compileDFA(EXPLOSIVE, DFAConstruction.SUBSET));
+        LazyDFA lazyDFA = RegexCompiler.compileLazy(EXPLOSIVE, 8);
+        Random random = new Random(12);
+        for (int i = 0; i < 200; i++) {
+            String input = randomInput(random, random.nextInt(200));
+            assertEquals(input, full.matches(input), lazyDFA.matches(input));
+            assertEquals(input, full.longestMatch(input, 0), lazyDFA.longestMatch(input, 0));
+            assertEquals(input, full.find(input, 0), lazyDFA.find(input, 0));
+            assertTrue(lazyDFA.getStateCount() <= 8);
+        }
+        assertTrue(lazyDFA.getFlushes() > 0);
+        assertTrue(lazyDFA.getFallbacks() > 0);
+    }
+
+    @Test
+    public void matchesLikeJavaRegex() {
+        JavaRegexOracle.assertMatchesLikeJavaRegex("lazy", regex ->
+                JavaRegexOracle.of(RegexCompiler.compileLazy(regex, LazyDFA.DEFAULT_MAX_STATES)));
+    }
+
+    /**
+     * With room for 2 states nearly every transition flushes the cache, including during find
+     */
+    @Test
+    public void flushingMatchesLikeJavaRegex() {
+        JavaRegexOracle.assertMatchesLikeJavaRegex("lazy flushing", regex ->
+                JavaRegexOracle.of(RegexCompiler.compileLazy(regex, 2)));
+    }
+}
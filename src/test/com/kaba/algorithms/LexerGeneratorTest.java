@@ -0,0 +1,85 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.Lexer;
+import com.kaba.helper.LexerRule;
+import com.kaba.helper.Token;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class LexerGeneratorTest {
+    private static final LexerRule IF = new LexerRule("IF", "if");
+    private static final LexerRule ID = new LexerRule("ID", "[a-z]+");
+    private static final LexerRule NUM = new LexerRule("NUM", "[0-9]+");
+    private static final LexerRule OP = new LexerRule("OP", "=|==|<|<=");
+    private static final LexerRule WS = new LexerRule("WS", "[ ]+");
+
+    private static List<String> names(Lexer lexer, String input) {
+        List<String> names = new ArrayList<>();
+        for (Token token : lexer.tokenize(input)) {
+            names.add(token.getName() + ":" + token.getText());
+        }
+        return names;
+    }
+
+    /**
+     * A lexeme matched by several rules goes to the first of them
+     */
+    @Test
+    public void earlierRulesWin() {
+        Lexer lexer = LexerGenerator.generate(Arrays.asList(IF, ID, WS));
+        assertEquals(Arrays.asList("IF:if", "WS: ", "ID:i", "WS: ", "ID:fi"), names(lexer, "if i fi"));
+        Lexer reversed = LexerGenerator.generate(Arrays.asList(ID, IF, WS));
+        assertEquals(Collections.singletonList("ID:if"), names(reversed, "if"));
+    }
+
+    /**
+     * The longest lexeme wins over priority: "iff" is an identifier, not IF followed by f
+     */
+    @Test
+    public void longestLexemeWins() {
+        Lexer lexer = LexerGenerator.generate(Arrays.asList(IF, ID, NUM, OP, WS));
+        assertEquals(Collections.singletonList("ID:iff"), names(lexer, "iff"));
+        assertEquals(Arrays.asList("IF:if", "WS: ", "ID:x", "OP:<=", "NUM:10", "OP:==", "ID:y"),
+                names(lexer, "if x<=10==y"));
+        Token token = lexer.nextToken("abc123", 0);
+        assertEquals(0, token.getStart());
+        assertEquals(3, token.getEnd());
+        assertEquals(ID.getName(), lexer.getTokenNames()[token.getRule()]);
+    }
+
+    /**
+     * When the scan dies past the last accepting state, the token is the lexeme accepted last
+     */
+    @Test
+    public void fallsBackToLastAcceptedLexeme() {
+        Lexer lexer = LexerGenerator.generate(Arrays.asList(new LexerRule("A", "a"), new LexerRule("ABC", "abc")));
+        assertEquals(1, lexer.nextToken("abd", 0).getEnd());
+        assertEquals(3, lexer.nextToken("abcabd", 0).getEnd());
+        assertEquals(4, lexer.nextToken("abcabd", 3).getEnd());
+        assertNull(lexer.nextToken("abcabd", 4));
+    }
+
+    @Test
+    public void unmatchedInputIsRejected() {
+        Lexer lexer = LexerGenerator.generate(Arrays.asList(ID, WS));
+        try {
+            lexer.tokenize("ab c1");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("No token rule matches the input at position 4: '1'", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void needsRules() {
+        LexerGenerator.generate(Collections.emptyList());
+    }
+}
@@ -0,0 +1,48 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.JavaRegexOracle;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NFASimulatorTest {
+    /**
+     * a?^n a^n on a^n: exponential for a backtracking matcher, O(n^2) steps for the simulation
+     */
+    @Test
+    public void noBacktracking() {
+        int n = 200;
+        StringBuilder regex = new StringBuilder();
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            regex.append("a?");
+            input.append('a');
+        }
+        regex.append(input);
+        NFASimulator simulator = RegexCompiler.compileSimulator(regex.toString());
+        assertTrue(simulator.matches(input));
+        assertFalse(simulator.matches(input.substring(1)));
+        assertEquals(2 * n, simulator.longestMatch(input.append(input).append('b'), 0));
+    }
+
+    /**
+     * The thread lists are reused between scans: a scan must not see the threads of the previous one
+     */
+    @Test
+    public void scansAreIndependent() {
+        NFASimulator simulator = RegexCompiler.compileSimulator("(ab)+c");
+        assertEquals(-1, simulator.longestMatch("ababab", 0));
+        assertTrue(simulator.matches("abc"));
+        assertEquals(3, simulator.find("xxxabababcab", 0));
+        assertEquals(-1, simulator.find("ababc", 6));
+        assertFalse(simulator.matches("c"));
+    }
+
+    @Test
+    public void matchesLikeJavaRegex() {
+        JavaRegexOracle.assertMatchesLikeJavaRegex("simulator", regex ->
+                JavaRegexOracle.of(RegexCompiler.compileSimulator(regex)));
+    }
+}
@@ -0,0 +1,109 @@
+package com.kaba.algorithms;
+
+import com.kaba.automata.CompiledRegex;
+import com.kaba.automata.DFAMatcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RegexCacheTest {
+    private static long weigh(String regex) {
+        return RegexCache.weigh(RegexCompiler.compile(regex));
+    }
+
+    private static boolean matches(CompiledRegex compiled, String input) {
+        return DFAMatcher.compile(compiled.getDFA()).matches(input);
+    }
+
+    private static String errorOf(RegexCache cache, String regex) {
+        try {
+            cache.get(regex);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        fail(regex + " was compiled");
+        return null;
+    }
+
+    @Test
+    public void whitespaceSharesEntries() {
+        RegexCache cache = new RegexCache(1_000);
+        CompiledRegex compiled = cache.get("(a | b)* c");
+        assertSame(compiled, cache.get("(a|b)*c"));
+        assertSame(compiled, cache.get(" (a|b) * c "));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(RegexCache.weigh(compiled), cache.getWeight());
+    }
+
+    /**
+     * The regex is compiled as it was entered, so errors point into that text and not into its normalized form
+     */
+    @Test
+    public void errorPositionsAreThoseOfTheRegex() {
+        String message = errorOf(new RegexCache(1_000), "a   b   )");
+        assertTrue(message, message.endsWith("at position 8"));
+        try {
+            RegexCompiler.compile("a   b   )");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), message);
+        }
+    }
+
+    /**
+     * A unicode escape with a space among its digits is invalid: it must not be normalized to the valid escape, whether
+     * that one is cached or not
+     */
+    @Test
+    public void invalidUnicodeEscapeIsNotShared() {
+        RegexCache cache = new RegexCache(1_000);
+        assertTrue(errorOf(cache, "a\\u 0062").contains("Invalid unicode escape"));
+        assertTrue(matches(cache.get("a\\u0062"), "ab"));
+        assertTrue(errorOf(cache, "a\\u 0062").contains("Invalid unicode escape"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        long entryWeight = weigh("a");
+        assertEquals(entryWeight, weigh("b"));
+        assertEquals(entryWeight, weigh("c"));
+        RegexCache cache = new RegexCache(2 * entryWeight);
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2 * entryWeight, cache.getWeight());
+        assertNull(cache.getIfPresent("b"));
+        assertNotNull(cache.getIfPresent("a"));
+        assertNotNull(cache.getIfPresent("c"));
+    }
+
+    /**
+     * An entry heavier than the whole cache is returned without being kept and without evicting anything
+     */
+    @Test
+    public void oversizedEntryIsNotCached() {
+        RegexCache cache = new RegexCache(2 * weigh("a"));
+        cache.get("a");
+        cache.get("b");
+        String heavy = "(a|b)*a(a|b)(a|b)";
+        assertTrue(weigh(heavy) > cache.getMaxWeight());
+        CompiledRegex compiled = cache.get(heavy);
+        assertTrue(matches(compiled, "baab"));
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+        assertNull(cache.getIfPresent(heavy));
+        assertNotNull(cache.getIfPresent("a"));
+        assertNotNull(cache.getIfPresent("b"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.kaba.algorithms;
+
+import com.kaba.helper.BinaryTree;
+import com.kaba.helper.Quadruples;
+import com.kaba.helper.Triples;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Three address code of expressions 1e6 operators deep: the tree is built and walked with explicit stacks, so these run
+ * on the default thread stack
+ */
+public class ThreeAddressCodeTest {
+    private static final int DEPTH = 1_000_000;
+
+    @Test
+    public void smallExpression() {
+        BinaryTree<String> tree = new ThreeAddressCode().generateThreeAddressCode("a=b+c*d;").get(0);
+        assertEquals("[t2 =  c * d, t1 =  b + t2, a = t1]", new ThreeAddressCode().getThreeAddress(tree).toString());
+        assertEquals("[t3 : c * d, t2 : b + t3, t1 : a = t2]", new ThreeAddressCode().getTriples(tree).toString());
+    }
+
+    /**
+     * a=b+c+c+...+c;
+     */
+    @Test
+    public void deepChain() {
+        StringBuilder statement = new StringBuilder("a=b");
+        for (int i = 0; i < DEPTH; i++) {
+            statement.append("+c");
+        }
+        assertDeep(statement.append(';').toString(), "t" + DEPTH + " =  c + c");
+    }
+
+    /**
+     * a=b+(b+(...(b+c)...));
+     */
+    @Test
+    public void deepNesting() {
+        StringBuilder statement = new StringBuilder("a=");
+        for (int i = 0; i < DEPTH; i++) {
+            statement.append("b+(");
+        }
+        statement.append('c');
+        for (int i = 0; i < DEPTH; i++) {
+            statement.append(')');
+        }
+        assertDeep(statement.append(';').toString(), "t" + DEPTH + " =  b + c");
+    }
+
+    /**
+     * Check the three forms of the code of statement: one entry per operator plus the assignment, innermost first
+     */
+    private static void assertDeep(String statement, String innermost) {
+        BinaryTree<String> tree = new ThreeAddressCode().generateThreeAddressCode(statement).get(0);
+
+        List<String> threeAddress = new ThreeAddressCode().getThreeAddress(tree);
+        assertEquals(DEPTH + 1, threeAddress.size());
+        assertEquals(innermost, threeAddress.get(0));
+        assertEquals("a = t1", threeAddress.get(DEPTH));
+
+        List<Quadruples> quadruples = new ThreeAddressCode().getQuadruples(tree);
+        assertEquals(DEPTH + 1, quadruples.size());
+        assertEquals("=", quadruples.get(DEPTH).getOperator());
+        assertEquals("t1", quadruples.get(DEPTH).getResult());
+
+        List<Triples> triples = new ThreeAddressCode().getTriples(tree);
+        assertEquals(DEPTH + 1, triples.size());
+        assertEquals("t1", triples.get(DEPTH).getPosition());
+        assertEquals("=", triples.get(DEPTH).getOperator());
+    }
+}
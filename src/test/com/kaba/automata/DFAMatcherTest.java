@@ -0,0 +1,71 @@
+package com.kaba.automata;
+
+import com.kaba.algorithms.DFAConstruction;
+import com.kaba.algorithms.RegexCompiler;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DFAMatcherTest {
+    /**
+     * ab* over the columns a and b: state 1 accepts
+     */
+    private static DFAMatcher abStar() {
+        int[] table = {
+                1, DFAMatcher.DEAD,
+                DFAMatcher.DEAD, 1
+        };
+        return new DFAMatcher(0, 2, new char[]{'a', 'b'}, table, new long[]{0b10});
+    }
+
+    private static DFAMatcher compile(String regex) {
+        return DFAMatcher.compile(RegexCompiler.compileDFA(regex, DFAConstruction.SUBSET));
+    }
+
+    @Test
+    public void tableDriven() {
+        DFAMatcher matcher = abStar();
+        assertEquals(1, matcher.step(0, 'a'));
+        assertEquals(DFAMatcher.DEAD, matcher.step(0, 'b'));
+        assertEquals(DFAMatcher.DEAD, matcher.step(1, 'z'));
+        assertEquals(DFAMatcher.DEAD, matcher.step(1, '€'));
+        assertTrue(matcher.matches("abbb"));
+        assertFalse(matcher.matches("abba"));
+        assertEquals(4, matcher.longestMatch("abbba", 0));
+        assertEquals(-1, matcher.longestMatch("abbba", 1));
+        assertEquals(4, matcher.find("bbbbab", 0));
+    }
+
+    @Test
+    public void findIsLeftmost() {
+        DFAMatcher matcher = compile("ab|b+c");
+        assertEquals(1, matcher.find("xbbbcab", 0));
+        assertEquals(2, matcher.find("xbbbcab", 2));
+        assertEquals(5, matcher.find("xbbbcab", 4));
+        assertEquals(-1, matcher.find("xbbbcab", 6));
+        assertEquals(-1, matcher.find("ab", 3));
+        assertEquals(2, compile("a*").find("bb", 2));
+    }
+
+    /**
+     * A match that starts at the first position and only ends at the last must not be lost to the threads started after it
+     */
+    @Test
+    public void findOverLongInput() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            input.append('a');
+        }
+        DFAMatcher matcher = compile("a*b");
+        assertEquals(-1, matcher.find(input, 0));
+        assertEquals(0, matcher.find(input.append('b'), 0));
+        assertEquals(input.length(), matcher.longestMatch(input, 0));
+    }
+
+    @Test
+    public void matchesLikeJavaRegex() {
+        JavaRegexOracle.assertMatchesLikeJavaRegex("subset", regex -> JavaRegexOracle.of(compile(regex)));
+    }
+}
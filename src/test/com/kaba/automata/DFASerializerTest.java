@@ -0,0 +1,145 @@
+package com.kaba.automata;
+
+import com.kaba.algorithms.DFAConstruction;
+import com.kaba.algorithms.RegexCompiler;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DFASerializerTest {
+    /**
+     * Named automata with one byte table entries and, for the last one (over 255 states), two byte entries
+     */
+    private static Map<String, DFAMatcher> matchers() {
+        Map<String, DFAMatcher> matchers = new LinkedHashMap<>();
+        for (String regex : new String[]{"(a|b)*abb", "[^\"]*\"", "é+|\\d?x", "(a|b)*a(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)"}) {
+            matchers.put(regex, DFAMatcher.compile(RegexCompiler.compileDFA(regex, DFAConstruction.SUBSET)));
+        }
+        return matchers;
+    }
+
+    private static byte[] serialize(Map<String, DFAMatcher> matchers) throws IOException {
+        Path file = Files.createTempFile("dfa", ".kdfa");
+        try {
+            DFASerializer.write(matchers, file);
+            return Files.readAllBytes(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertSameMatcher(String name, DFAMatcher expected, DFAMatcher actual) {
+        assertEquals(name, expected.getStartState(), actual.getStartState());
+        assertEquals(name, expected.getStateCount(), actual.getStateCount());
+        assertEquals(name, expected.getColumnCount(), actual.getColumnCount());
+        assertArrayEquals(name, expected.getTable(), actual.getTable());
+        assertArrayEquals(name, expected.getAccepting(), actual.getAccepting());
+        for (char c = 0; c < 0x300; c++) {
+            assertEquals(name + " on " + (int) c, expected.step(expected.getStartState(), c),
+                    actual.step(actual.getStartState(), c));
+        }
+    }
+
+    private static String corruption(byte[] bytes) {
+        try {
+            DFASerializer.readAll(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+        fail("read " + bytes.length + " corrupt bytes");
+        return null;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Map<String, DFAMatcher> matchers = matchers();
+        assertTrue(matchers.get("(a|b)*a(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)").getStateCount() >= 0xFF);
+        Path file = Files.createTempFile("dfa", ".kdfa");
+        try {
+            DFASerializer.write(matchers, file);
+            Map<String, DFAMatcher> read = DFASerializer.readAll(file);
+            assertEquals(Arrays.asList(matchers.keySet().toArray()), Arrays.asList(read.keySet().toArray()));
+            for (String name : matchers.keySet()) {
+                assertSameMatcher(name, matchers.get(name), read.get(name));
+            }
+
+            DFASerializer.write(RegexCompiler.compileDFA("ab*", DFAConstruction.SUBSET), file);
+            DFAMatcher single = DFASerializer.read(file);
+            assertTrue(single.matches("abbb"));
+            assertEquals(-1, single.longestMatch("ba", 0));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void headerIsChecked() throws IOException {
+        byte[] bytes = serialize(matchers());
+        byte[] magic = bytes.clone();
+        magic[0] = 'X';
+        assertEquals("Not a DFA file: bad magic number", corruption(magic));
+        byte[] version = bytes.clone();
+        version[5] = 2;
+        assertEquals("Unsupported DFA file version 2 (expected 1)", corruption(version));
+    }
+
+    /**
+     * Every strict prefix of a file is rejected with an IOException, never read as a shorter file or left to fail with
+     * a runtime exception
+     */
+    @Test
+    public void truncatedFilesAreRejected() throws IOException {
+        byte[] bytes = serialize(matchers());
+        for (int length = 0; length < bytes.length; length++) {
+            corruption(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    /**
+     * The start state, the transitions and the lengths are checked while reading, before anything is allocated for
+     * the tables they announce
+     */
+    @Test
+    public void recordsAreValidated() throws IOException {
+        Map<String, DFAMatcher> matchers = new LinkedHashMap<>();
+        DFAMatcher matcher = DFAMatcher.compile(RegexCompiler.compileDFA("(a|b)*abb", DFAConstruction.SUBSET));
+        matchers.put("x", matcher);
+        byte[] bytes = serialize(matchers);
+        int record = 4 + 2 + 4 + 4 + 1;
+        int stateCount = matcher.getStateCount();
+        int intervals = matcher.getAlphabetClasses().getIntervalStarts().length;
+        int table = record + 4 + 4 + 4 + 1 + 4 + 6 * intervals;
+
+        byte[] name = bytes.clone();
+        ByteBuffer.wrap(name).putInt(10, Integer.MAX_VALUE);
+        assertTrue(corruption(name).contains("entries of name"));
+
+        byte[] start = bytes.clone();
+        ByteBuffer.wrap(start).putInt(record, stateCount);
+        assertEquals("Corrupt DFA file: start state " + stateCount + " of " + stateCount + " states", corruption(start));
+
+        byte[] states = bytes.clone();
+        ByteBuffer.wrap(states).putInt(record + 4, -1);
+        assertTrue(corruption(states).startsWith("Corrupt DFA file: -1 states"));
+
+        byte[] width = bytes.clone();
+        width[record + 12] = 4;
+        assertTrue(corruption(width).contains("table entries of 4 bytes"));
+
+        byte[] transition = bytes.clone();
+        transition[table] = (byte) (stateCount + 1);
+        assertEquals("Corrupt DFA file: transition to state " + stateCount + " of " + stateCount + " states",
+                corruption(transition));
+    }
+}
@@ -0,0 +1,163 @@
+package com.kaba.automata;
+
+import com.kaba.algorithms.LazyDFA;
+import com.kaba.algorithms.NFASimulator;
+
+import java.util.Random;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * java.util.regex as the reference for the matching engines: random expressions and inputs are run through an engine
+ * and through Pattern, comparing whole matches, the longest match at every start and the leftmost match from every start
+ * Expressions are written in the syntax both accept (implicit concatenation, |, *, +, ?, bracketed classes and \d)
+ * and inputs include a character outside every class but the negated ones
+ */
+public final class JavaRegexOracle {
+    private static final String[] ATOMS = {"a", "b", "c", "[ab]", "[^a]", "[a-c1]", "\\d"};
+    private static final String INPUT_SYMBOLS = "abc1é";
+    private static final int EXPRESSIONS = 400;
+    private static final int INPUTS = 40;
+    private static final int MAX_INPUT_LENGTH = 8;
+
+    private JavaRegexOracle() {
+    }
+
+    /**
+     * The three queries of the engines, whatever the automaton behind them
+     */
+    public interface Engine {
+        boolean matches(CharSequence input);
+
+        int longestMatch(CharSequence input, int from);
+
+        int find(CharSequence input, int from);
+    }
+
+    /**
+     * Compile random expressions with compiler and check the engines against Pattern on random inputs
+     */
+    public static void assertMatchesLikeJavaRegex(String name, Function<String, Engine> compiler) {
+        Random random = new Random(20);
+        for (int e = 0; e < EXPRESSIONS; e++) {
+            String regex = expression(random, 4);
+            Engine engine = compiler.apply(regex);
+            Pattern pattern = Pattern.compile(regex);
+            for (int i = 0; i < INPUTS; i++) {
+                String input = input(random);
+                String context = name + ": " + regex + " on \"" + input + "\"";
+                Matcher matcher = pattern.matcher(input);
+                assertEquals(context, matcher.matches(), engine.matches(input));
+                for (int from = 0; from <= input.length(); from++) {
+                    assertEquals(context + " longest match from " + from, longestMatch(matcher, input, from),
+                            engine.longestMatch(input, from));
+                    assertEquals(context + " find from " + from, matcher.find(from) ? matcher.start() : -1,
+                            engine.find(input, from));
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the end of the longest match of matcher that starts at from, or -1
+     */
+    private static int longestMatch(Matcher matcher, String input, int from) {
+        for (int end = input.length(); end >= from; end--) {
+            if (matcher.region(from, end).matches()) {
+                matcher.reset();
+                return end;
+            }
+        }
+        matcher.reset();
+        return -1;
+    }
+
+    /**
+     * Return a random expression at most depth operators deep
+     */
+    private static String expression(Random random, int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            return ATOMS[random.nextInt(ATOMS.length)];
+        }
+        switch (random.nextInt(5)) {
+            case 0:
+                return expression(random, depth - 1) + expression(random, depth - 1);
+            case 1:
+                return "(" + expression(random, depth - 1) + "|" + expression(random, depth - 1) + ")";
+            case 2:
+                return "(" + expression(random, depth - 1) + ")*";
+            case 3:
+                return "(" + expression(random, depth - 1) + ")+";
+            default:
+                return "(" + expression(random, depth - 1) + ")?";
+        }
+    }
+
+    private static String input(Random random) {
+        char[] input = new char[random.nextInt(MAX_INPUT_LENGTH + 1)];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = INPUT_SYMBOLS.charAt(random.nextInt(INPUT_SYMBOLS.length()));
+        }
+        return new String(input);
+    }
+
+    public static Engine of(DFAMatcher matcher) {
+        return new Engine() {
+            @Override
+            public boolean matches(CharSequence input) {
+                return matcher.matches(input);
+            }
+
+            @Override
+            public int longestMatch(CharSequence input, int from) {
+                return matcher.longestMatch(input, from);
+            }
+
+            @Override
+            public int find(CharSequence input, int from) {
+                return matcher.find(input, from);
+            }
+        };
+    }
+
+    public static Engine of(LazyDFA lazyDFA) {
+        return new Engine() {
+            @Override
+            public boolean matches(CharSequence input) {
+                return lazyDFA.matches(input);
+            }
+
+            @Override
+            public int longestMatch(CharSequence input, int from) {
+                return lazyDFA.longestMatch(input, from);
+            }
+
+            @Override
+            public int find(CharSequence input, int from) {
+                return lazyDFA.find(input, from);
+            }
+        };
+    }
+
+    public static Engine of(NFASimulator simulator) {
+        return new Engine() {
+            @Override
+            public boolean matches(CharSequence input) {
+                return simulator.matches(input);
+            }
+
+            @Override
+            public int longestMatch(CharSequence input, int from) {
+                return simulator.longestMatch(input, from);
+            }
+
+            @Override
+            public int find(CharSequence input, int from) {
+                return simulator.find(input, from);
+            }
+        };
+    }
+}
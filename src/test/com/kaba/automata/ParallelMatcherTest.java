@@ -0,0 +1,103 @@
+package com.kaba.automata;
+
+import com.kaba.algorithms.DFAConstruction;
+import com.kaba.algorithms.RegexCompiler;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelMatcherTest {
+    /**
+     * A match needs an a six characters from the end: the DFA has more than 64 states
+     */
+    private static final DFAMatcher MATCHER = DFAMatcher.compile(
+            RegexCompiler.compileDFA("(a|b)*a(a|b)(a|b)(a|b)(a|b)(a|b)c*", DFAConstruction.SUBSET));
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    private static String randomInput(Random random, int length) {
+        char[] input = new char[length];
+        for (int i = 0; i < length; i++) {
+            int symbol = random.nextInt(40);
+            input[i] = symbol == 0 ? 'c' : symbol == 1 ? 'x' : symbol % 2 == 0 ? 'a' : 'b';
+        }
+        return new String(input);
+    }
+
+    private static int scan(int state, CharSequence input, int from, int to) {
+        for (int i = from; i < to && state != DFAMatcher.DEAD; i++) {
+            state = MATCHER.step(state, input.charAt(i));
+        }
+        return state;
+    }
+
+    /**
+     * The function of a chunk maps every state to the state a plain scan of the chunk reaches from it, including chunks
+     * that kill some or all of the runs
+     */
+    @Test
+    public void chunkFunctionIsThatOfAScan() {
+        ParallelMatcher parallel = new ParallelMatcher(MATCHER, POOL, 4);
+        Random random = new Random(15);
+        for (int i = 0; i < 200; i++) {
+            String input = randomInput(random, random.nextInt(40));
+            int from = random.nextInt(input.length() + 1);
+            int to = from + random.nextInt(input.length() - from + 1);
+            int[] function = parallel.chunkFunction(input, from, to);
+            for (int s = 0; s < MATCHER.getStateCount(); s++) {
+                assertEquals(input + " [" + from + ", " + to + ") from " + s, scan(s, input, from, to), function[s]);
+            }
+        }
+    }
+
+    /**
+     * Chunks of a few characters, far fewer than the states of the DFA, so most chunks end with many runs left, and
+     * matches that start or end on any chunk boundary
+     */
+    @Test
+    public void smallChunksMatchLikeAScan() {
+        assertTrue(MATCHER.getStateCount() > 64);
+        Random random = new Random(16);
+        for (int chunkSize = 1; chunkSize <= 9; chunkSize++) {
+            ParallelMatcher parallel = new ParallelMatcher(MATCHER, POOL, chunkSize);
+            for (int i = 0; i < 100; i++) {
+                String input = randomInput(random, random.nextInt(200));
+                String context = input + " in chunks of " + chunkSize;
+                assertEquals(context, scan(MATCHER.getStartState(), input, 0, input.length()), parallel.run(input));
+                assertEquals(context, MATCHER.matches(input), parallel.matches(input));
+            }
+        }
+    }
+
+    @Test
+    public void composeFollowsInputOrder() {
+        ParallelMatcher parallel = new ParallelMatcher(MATCHER, POOL, 8);
+        String input = randomInput(new Random(17), 100);
+        for (int split = 0; split <= input.length(); split++) {
+            assertArrayEquals(parallel.chunkFunction(input, 0, input.length()), ParallelMatcher.compose(
+                    parallel.chunkFunction(input, 0, split), parallel.chunkFunction(input, split, input.length())));
+        }
+    }
+
+    @Test
+    public void hugeInputWithDefaultChunks() {
+        StringBuilder input = new StringBuilder(randomInput(new Random(18), 3 * ParallelMatcher.DEFAULT_CHUNK_SIZE)
+                .replace('x', 'b').replace('c', 'a'));
+        ParallelMatcher parallel = new ParallelMatcher(MATCHER, POOL, ParallelMatcher.DEFAULT_CHUNK_SIZE);
+        assertEquals(MATCHER.matches(input), parallel.matches(input));
+        input.append("abbbbbccc");
+        assertTrue(parallel.matches(input));
+        input.append('x');
+        assertEquals(DFAMatcher.DEAD, parallel.run(input));
+    }
+}
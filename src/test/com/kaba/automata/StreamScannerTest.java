@@ -0,0 +1,175 @@
+package com.kaba.automata;
+
+import com.kaba.algorithms.LexerGenerator;
+import com.kaba.helper.LexerRule;
+import com.kaba.helper.Token;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamScannerTest {
+    /**
+     * Words of one and two byte characters, numbers, spaces and surrogate pairs (four bytes in UTF-8)
+     */
+    private static final Lexer LEXER = LexerGenerator.generate(Arrays.asList(
+            new LexerRule("WORD", "[a-zé€]+"),
+            new LexerRule("NUM", "[0-9]+"),
+            new LexerRule("WS", "[ ]+"),
+            new LexerRule("PAIR", "[\\uD800-\\uDFFF]+")));
+    private static final String SYMBOLS = "ab€é9 😀";
+
+    /**
+     * Hands out at most chunk bytes per read, so characters and tokens are split across reads
+     */
+    private static ReadableByteChannel channel(byte[] bytes, int chunk) {
+        return new ReadableByteChannel() {
+            private int position = 0;
+
+            @Override
+            public int read(ByteBuffer destination) {
+                if (position == bytes.length) {
+                    return -1;
+                }
+                int length = Math.min(chunk, Math.min(destination.remaining(), bytes.length - position));
+                destination.put(bytes, position, length);
+                position += length;
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static String randomInput(Random random, int length) {
+        StringBuilder input = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int symbol = random.nextInt(SYMBOLS.length() - 1);
+            if (symbol == SYMBOLS.length() - 2) {
+                input.append(SYMBOLS, symbol, symbol + 2);
+            } else {
+                input.append(SYMBOLS.charAt(symbol));
+            }
+        }
+        return input.toString();
+    }
+
+    private static List<String> expected(String input) {
+        List<String> tokens = new ArrayList<>();
+        for (Token token : LEXER.tokenize(input)) {
+            tokens.add(token.getRule() + " " + token.getStart() + "-" + token.getEnd() + " " + token.getText());
+        }
+        return tokens;
+    }
+
+    private static StreamScanner.TokenHandler recorder(List<String> tokens) {
+        return (rule, start, end, lexeme) -> {
+            assertEquals(end - start, lexeme.length());
+            tokens.add(rule + " " + start + "-" + end + " " + lexeme);
+        };
+    }
+
+    /**
+     * With windows of a few chars the window is compacted before nearly every token and grown for the long ones, and
+     * with reads of a few bytes the characters of up to four bytes are split between reads: the tokens are still those
+     * of Lexer.tokenize, at absolute positions
+     */
+    @Test
+    public void smallWindowsAndSplitReads() throws IOException {
+        Random random = new Random(14);
+        for (int i = 0; i < 200; i++) {
+            String input = randomInput(random, random.nextInt(300));
+            byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+            int bufferSize = 1 + random.nextInt(8);
+            int chunk = 1 + random.nextInt(5);
+            List<String> tokens = new ArrayList<>();
+            StreamScanner scanner = new StreamScanner(LEXER, StandardCharsets.UTF_8, bufferSize);
+            long count = scanner.scan(channel(bytes, chunk), recorder(tokens));
+            assertEquals(input + " in windows of " + bufferSize + " and reads of " + chunk, expected(input), tokens);
+            assertEquals(tokens.size(), count);
+        }
+    }
+
+    /**
+     * A token much longer than the window is completed by growing the window
+     */
+    @Test
+    public void tokenLongerThanWindow() throws IOException {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            word.append(i % 2 == 0 ? 'a' : '€');
+        }
+        String input = "12 " + word + " 34";
+        List<String> tokens = new ArrayList<>();
+        new StreamScanner(LEXER, StandardCharsets.UTF_8, 4)
+                .scan(channel(input.getBytes(StandardCharsets.UTF_8), 3), recorder(tokens));
+        assertEquals(expected(input), tokens);
+    }
+
+    @Test
+    public void scannerIsReusable() throws IOException {
+        StreamScanner scanner = new StreamScanner(LEXER, StandardCharsets.UTF_8, 5);
+        for (String input : new String[]{"ab 12 €é", "", "9😀😀 b"}) {
+            List<String> tokens = new ArrayList<>();
+            scanner.scan(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)), recorder(tokens));
+            assertEquals(expected(input), tokens);
+        }
+    }
+
+    @Test
+    public void mappedFile() throws IOException {
+        String input = randomInput(new Random(15), 100_000);
+        Path file = Files.createTempFile("stream-scanner", ".txt");
+        try {
+            Files.write(file, input.getBytes(StandardCharsets.UTF_8));
+            List<String> tokens = new ArrayList<>();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                new StreamScanner(LEXER).scan(channel, recorder(tokens));
+            }
+            assertEquals(expected(input), tokens);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * The position of an unmatched character is its offset in the whole input, not in the window
+     */
+    @Test
+    public void errorPositionIsAbsolute() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            input.append("ab ");
+        }
+        input.append('#');
+        try {
+            new StreamScanner(LEXER, StandardCharsets.UTF_8, 8)
+                    .scan(channel(input.toString().getBytes(StandardCharsets.UTF_8), 7), (rule, start, end, lexeme) -> {
+                    });
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("No token rule matches the input at position 3000:"));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.kaba.helper;
+
+import com.kaba.algorithms.NFASimulator;
+import com.kaba.algorithms.Thompson;
+import org.junit.Test;
+
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Regular expressions nested 1e6 deep through the parser, Regex.simplify, Thompson and State.getEClosure: every pass
+ * uses explicit stacks, so these run on the default thread stack
+ */
+public class DeepRegexTest {
+    private static final int DEPTH = 1_000_000;
+
+    /**
+     * ((...((a)*)*...)*)*
+     */
+    private static String nestedStars() {
+        StringBuilder regex = new StringBuilder(4 * DEPTH);
+        for (int i = 0; i < DEPTH; i++) {
+            regex.append('(');
+        }
+        regex.append('a');
+        for (int i = 0; i < DEPTH; i++) {
+            regex.append(")*");
+        }
+        return regex.toString();
+    }
+
+    @Test
+    public void simplifyNestedStars() {
+        Queue<RegexToken> postfix = Regex.simplify(Regex.infixToPostfix(nestedStars()));
+        assertEquals(2, postfix.size());
+        assertEquals(CharClass.of('a'), postfix.remove().getSymbols());
+        assertEquals('*', postfix.remove().getOperator());
+    }
+
+    /**
+     * (a|(a|(...(a|b)...)))
+     */
+    @Test
+    public void simplifyNestedAlternation() {
+        StringBuilder regex = new StringBuilder(4 * DEPTH);
+        for (int i = 0; i < DEPTH; i++) {
+            regex.append("(a|");
+        }
+        regex.append('b');
+        for (int i = 0; i < DEPTH; i++) {
+            regex.append(')');
+        }
+        Queue<RegexToken> postfix = Regex.simplify(Regex.infixToPostfix(regex.toString()));
+        assertEquals(1, postfix.size());
+        assertEquals(CharClass.ofRanges(new char[]{'a', 'b'}, 2), postfix.remove().getSymbols());
+    }
+
+    /**
+     * Without simplification the NFA keeps the 1e6 stars: 2 states per star plus the 2 of a, and every state but the
+     * target of the a transition is reachable via ε from the start state
+     */
+    @Test
+    public void eClosureOfNestedStars() {
+        Fragment NFA = Thompson.postfixToNFA(Regex.infixToPostfix(nestedStars()));
+        assertEquals(2 * DEPTH + 2, NFA.getStateCount());
+        assertEquals(2 * DEPTH + 1, NFA.getStartState().getEClosure().size());
+
+        NFASimulator simulator = NFASimulator.of(NFA);
+        assertTrue(simulator.matches(""));
+        assertTrue(simulator.matches("aaa"));
+        assertFalse(simulator.matches("ab"));
+    }
+
+    /**
+     * a.a.a...a: the ε-closure of the start state is the start state alone
+     */
+    @Test
+    public void longConcatenation() {
+        StringBuilder regex = new StringBuilder(2 * DEPTH);
+        for (int i = 0; i < DEPTH; i++) {
+            regex.append(i == 0 ? "a" : ".a");
+        }
+        Fragment NFA = Thompson.postfixToNFA(Regex.simplify(Regex.infixToPostfix(regex.toString())));
+        assertEquals(1, NFA.getStartState().getEClosure().size());
+
+        StringBuilder input = new StringBuilder(DEPTH);
+        for (int i = 0; i < DEPTH; i++) {
+            input.append('a');
+        }
+        NFASimulator simulator = NFASimulator.of(NFA);
+        assertTrue(simulator.matches(input));
+        assertFalse(simulator.matches(input.substring(1)));
+    }
+}